@@ -1,4 +1,25 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
 
 // Abstract base class for all page replacement algorithms
 abstract class PageReplacementAlgorithm {
@@ -10,11 +31,23 @@ abstract class PageReplacementAlgorithm {
 
     protected abstract void replacePage();
 
+    static int checkFrames(int numFrames) {
+        if (numFrames < 1) throw new IllegalArgumentException("Number of frames must be positive: " + numFrames);
+        return numFrames;
+    }
+
     public PageReplacementAlgorithm(int numFrames, int[] pages) {
-        this.numFrames = numFrames;
+        this(numFrames, pages, true);
+    }
+
+    // keepHistory = false skips the per-reference frame table (counters only)
+    protected PageReplacementAlgorithm(int numFrames, int[] pages, boolean keepHistory) {
+        this.numFrames = checkFrames(numFrames);
         this.pages = pages;
         this.pagesLength = pages.length;
         this.pageFault = 0;
+        if (!keepHistory) return;
+
         this.frames = new int[pagesLength][numFrames + 1]; // +1 column for fault mark
 
         // Initialize frames to -1
@@ -25,6 +58,13 @@ abstract class PageReplacementAlgorithm {
         }
     }
 
+    // Streaming mode (see StreamingPolicy): no frame table, only the current frame state
+    protected PageReplacementAlgorithm(int numFrames) {
+        this.numFrames = checkFrames(numFrames);
+        this.pagesLength = 0;
+        this.pageFault = 0;
+    }
+
     protected boolean isPageFault(int index, int page) {
         for (int i = 0; i < numFrames; i++) {
             if (frames[index][i] == page) return false;
@@ -53,19 +93,478 @@ abstract class PageReplacementAlgorithm {
             System.out.println();
         }
 
+        displayCounts();
+    }
+
+    public void displayCounts() {
         System.out.println("\nTotal Page Hit: " + (pagesLength - pageFault));
         System.out.println("Total Page Fault: " + pageFault);
     }
+
+}
+
+// A policy that runs over a trace one reference at a time, keeping only the
+// current frame state instead of a per-reference frame table
+interface StreamingPolicy {
+    // Applies one reference to the current frame state; returns true on a page fault
+    boolean access(int page);
+
+    // Current frame contents in slot order, -1 for an empty frame
+    int[] residentPages();
+}
+
+interface FrameSnapshotListener {
+    void onSnapshot(long references, long faults, int[] frames);
+}
+
+// Feeds a trace through a StreamingPolicy and counts references and faults.
+// Page numbers must be non-negative: -1 marks an empty frame, and the
+// policies' PageIndex reserves Integer.MIN_VALUE.
+class StreamingRun {
+    final StreamingPolicy policy;
+    long references;
+    long faults;
+
+    StreamingRun(StreamingPolicy policy) {
+        this.policy = policy;
+    }
+
+    public StreamingRun run(IntStream trace) {
+        return run(trace.iterator(), 0, null);
+    }
+
+    public StreamingRun run(PrimitiveIterator.OfInt trace) {
+        return run(trace, 0, null);
+    }
+
+    // Feeds every reference through access(); listener (if any) gets a frame
+    // snapshot every sampleEvery references instead of a full history table
+    public StreamingRun run(PrimitiveIterator.OfInt trace, long sampleEvery, FrameSnapshotListener listener) {
+        boolean sampling = listener != null && sampleEvery > 0;
+        while (trace.hasNext()) {
+            int page = trace.nextInt();
+            if (page < 0) throw new IllegalArgumentException("Page number out of range: " + page);
+            if (policy.access(page)) faults++;
+            references++;
+            if (sampling && references % sampleEvery == 0) {
+                listener.onSnapshot(references, faults, policy.residentPages());
+            }
+        }
+        return this;
+    }
+
+    public void displayCounts() {
+        System.out.println("Total References: " + references);
+        System.out.println("Total Page Hit: " + (references - faults));
+        System.out.println("Total Page Fault: " + faults);
+    }
+}
+
+// Streams page numbers from a text trace (whitespace or comma separated)
+// without Scanner or boxing. A '-' or a number past Integer.MAX_VALUE is an
+// error: page numbers are non-negative ints.
+class TextTraceReader implements PrimitiveIterator.OfInt, Closeable {
+    private final Reader in;
+    private final char[] buffer = new char[1 << 16];
+    private int position, limit;
+    private boolean fetched, available;
+    private int next;
+
+    public TextTraceReader(Path path) throws IOException {
+        this.in = Files.newBufferedReader(path);
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void fetch() {
+        try {
+            int c = read();
+            while (c != -1 && c != '-' && (c < '0' || c > '9')) c = read();
+            available = c != -1;
+            if (available) {
+                if (c == '-') throw new IllegalArgumentException("Page number out of range in trace: '-' (page numbers are non-negative)");
+                long value = 0;
+                while (c >= '0' && c <= '9') {
+                    value = value * 10 + (c - '0');
+                    if (value > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("Page number out of range in trace: " + value + "...");
+                    }
+                    c = read();
+                }
+                next = (int) value;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        fetched = true;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!fetched) fetch();
+        return available;
+    }
+
+    @Override
+    public int nextInt() {
+        if (!hasNext()) throw new NoSuchElementException();
+        fetched = false;
+        return next;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
+
+// Open-addressing page -> slot map on primitive arrays (no boxing).
+// Integer.MIN_VALUE marks a free cell, so it cannot be used as a key.
+class PageIndex {
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public PageIndex(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+        java.util.Arrays.fill(keys, EMPTY);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Returns the slot stored for page, or -1 if the page is not present
+    public int get(int key) {
+        if (key == EMPTY) return -1;
+        int i = hash(key) & mask;
+        while (true) {
+            int k = keys[i];
+            if (k == key) return values[i];
+            if (k == EMPTY) return -1;
+            i = (i + 1) & mask;
+        }
+    }
+
+    public void put(int key, int value) {
+        if (key == EMPTY) throw new IllegalArgumentException("Page number out of range: " + key);
+        int i = hash(key) & mask;
+        while (true) {
+            int k = keys[i];
+            if (k == key) {
+                values[i] = value;
+                return;
+            }
+            if (k == EMPTY) break;
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) grow();
+    }
+
+    public void remove(int key) {
+        if (key == EMPTY) return;
+        int i = hash(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) return;
+            i = (i + 1) & mask;
+        }
+
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == EMPTY) break;
+            int home = hash(keys[j]) & mask;
+            boolean between = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+            if (!between) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        size--;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys, oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
+
+// LRU miss-ratio curve for every frame count 1..maxFrames in one pass
+// (Mattson stack algorithm). A Fenwick tree over trace positions marks the
+// latest reference of each page, so the stack distance of a reference is the
+// number of marks since the page's previous use: O(log n) per reference.
+class StackDistance {
+    private final int maxFrames;
+    private final long[] histogram; // [d] = references at stack distance d, [maxFrames + 1] = deeper
+    private long coldMisses;
+    private long references;
+
+    public StackDistance(int maxFrames) {
+        this.maxFrames = maxFrames;
+        this.histogram = new long[maxFrames + 2];
+    }
+
+    public void run(PageTrace trace) {
+        if (trace.length() > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Trace too long for stack distance: " + trace.length());
+        }
+        int n = (int) trace.length();
+        int[] tree = new int[n + 1];
+        PageIndex lastUse = new PageIndex(1024);
+
+        for (int t = 0; t < n; t++) {
+            int page = trace.get(t);
+            int last = lastUse.get(page);
+            if (last == -1) {
+                coldMisses++;
+            } else {
+                // distinct pages referenced after 'last', plus the page itself
+                long distance = prefixSum(tree, t) - prefixSum(tree, last + 1) + 1;
+                histogram[(int) Math.min(distance, maxFrames + 1)]++;
+                add(tree, last, -1);
+            }
+            add(tree, t, 1);
+            lastUse.put(page, t);
+        }
+        references += n;
+    }
+
+    // Sum of marks at positions [0, end)
+    private static long prefixSum(int[] tree, int end) {
+        long sum = 0;
+        for (int i = end; i > 0; i -= i & -i) sum += tree[i];
+        return sum;
+    }
+
+    private static void add(int[] tree, int position, int delta) {
+        for (int i = position + 1; i < tree.length; i += i & -i) tree[i] += delta;
+    }
+
+    // faults[k] = LRU page faults with k frames, for k = 1..maxFrames
+    public long[] faultCurve() {
+        long[] faults = new long[maxFrames + 1];
+        long deeper = coldMisses + histogram[maxFrames + 1];
+        for (int k = maxFrames; k >= 1; k--) {
+            faults[k] = deeper;
+            deeper += histogram[k];
+        }
+        return faults;
+    }
+
+    public void displayCurve() {
+        long[] faults = faultCurve();
+        System.out.println("Frames\tFaults\tHits\tMissRatio");
+        for (int k = 1; k <= maxFrames; k++) {
+            double ratio = (references == 0) ? 0 : (double) faults[k] / references;
+            System.out.printf("%d\t%d\t%d\t%.6f%n", k, faults[k], references - faults[k], ratio);
+        }
+    }
+}
+
+// Read-only binary page trace mapped with FileChannel.map (no copying, no boxing).
+// Layout: magic "PTRC", version (int), reference count (long), then one
+// little-endian int32 page number per reference.
+class PageTrace {
+    static final int MAGIC = 0x50545243;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    private static final int CHUNK_SHIFT = 28; // 2^28 ints (1 GiB) per mapping
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    private final IntBuffer[] chunks;
+    private final long length;
+
+    private PageTrace(IntBuffer[] chunks, long length) {
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    public static PageTrace open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("Not a page trace: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported page trace version " + version);
+            long length = header.getLong();
+            // Checked by division so a corrupt count cannot overflow past the test
+            if (length < 0 || length > (channel.size() - HEADER_BYTES) / 4) {
+                throw new IOException("Truncated/corrupt trace: " + path);
+            }
+
+            // The mappings stay valid after the channel is closed
+            IntBuffer[] chunks = new IntBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT)];
+            for (int c = 0; c < chunks.length; c++) {
+                long first = (long) c << CHUNK_SHIFT;
+                long count = Math.min(length - first, 1L << CHUNK_SHIFT);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * 4, count * 4)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asIntBuffer();
+            }
+            return new PageTrace(chunks, length);
+        }
+    }
+
+    // Wraps an in-memory trace without copying it
+    public static PageTrace of(int[] pages) {
+        IntBuffer[] chunks = new IntBuffer[(pages.length + CHUNK_MASK) >>> CHUNK_SHIFT];
+        for (int c = 0; c < chunks.length; c++) {
+            int first = c << CHUNK_SHIFT;
+            chunks[c] = IntBuffer.wrap(pages, first, Math.min(pages.length - first, 1 << CHUNK_SHIFT)).slice();
+        }
+        return new PageTrace(chunks, pages.length);
+    }
+
+    public static boolean isBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) { }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public int get(long i) {
+        return chunks[(int) (i >>> CHUNK_SHIFT)].get((int) (i & CHUNK_MASK));
+    }
+
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private long next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next >= length) throw new NoSuchElementException();
+                return get(next++);
+            }
+        };
+    }
+
+    // Writes references to a binary trace; returns the number written
+    public static long write(Path path, PrimitiveIterator.OfInt pages) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(0); // count patched below
+
+            long count = 0;
+            while (pages.hasNext()) {
+                int page = pages.nextInt();
+                if (page < 0) throw new IllegalArgumentException("Page number out of range: " + page);
+                if (buffer.remaining() < 4) drain(channel, buffer);
+                buffer.putInt(page);
+                count++;
+            }
+            drain(channel, buffer);
+
+            buffer.putLong(count).flip();
+            channel.write(buffer, 8);
+            return count;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    // Text trace -> binary trace converter
+    public static long convert(Path text, Path binary) throws IOException {
+        try (TextTraceReader reader = new TextTraceReader(text)) {
+            return write(binary, reader);
+        }
+    }
 }
 
 // FIFO Page Replacement
-class FIFO extends PageReplacementAlgorithm {
+class FIFO extends PageReplacementAlgorithm implements StreamingPolicy {
     private int pointer = 0;
 
+    // Streaming mode state
+    private int[] slotPage;
+    private PageIndex index;
+
     public FIFO(int numFrames, int[] pages) {
         super(numFrames, pages);
     }
 
+    public FIFO(int numFrames) {
+        super(numFrames);
+        this.slotPage = new int[numFrames];
+        Arrays.fill(slotPage, -1);
+        this.index = new PageIndex(numFrames);
+    }
+
+    @Override
+    public boolean access(int page) {
+        requireStreaming();
+        if (index.get(page) >= 0) return false;
+
+        int victim = slotPage[pointer];
+        if (victim != -1) index.remove(victim);
+        slotPage[pointer] = page;
+        index.put(page, pointer);
+        pointer++;
+        if (pointer == numFrames) pointer = 0; // wrap around
+        return true;
+    }
+
+    @Override
+    public int[] residentPages() {
+        requireStreaming();
+        return slotPage.clone();
+    }
+
+    // Only FIFO(numFrames) has the streaming state
+    private void requireStreaming() {
+        if (index == null) throw new IllegalStateException("FIFO built with a page list cannot stream; use new FIFO(numFrames)");
+    }
+
     @Override
     protected void replacePage() {
         int page;
@@ -211,9 +710,747 @@ class Optimal extends PageReplacementAlgorithm {
     }
 }
 
+// LRU Page Replacement with O(1) work per reference.
+// Resident pages sit in a doubly-linked recency list over frame slots
+// (head = most recent, tail = least recent); PageIndex maps page -> slot.
+class FastLRU extends PageReplacementAlgorithm implements StreamingPolicy {
+    private final int[] slotPage = new int[numFrames];
+    private final int[] prev = new int[numFrames];
+    private final int[] next = new int[numFrames];
+    private final PageIndex index = new PageIndex(numFrames);
+    private int head = -1, tail = -1, used = 0;
+
+    public FastLRU(int numFrames, int[] pages) {
+        super(numFrames, pages, false);
+    }
+
+    public FastLRU(int numFrames) {
+        super(numFrames);
+    }
+
+    private void unlink(int slot) {
+        int p = prev[slot], n = next[slot];
+        if (p == -1) head = n; else next[p] = n;
+        if (n == -1) tail = p; else prev[n] = p;
+    }
+
+    private void linkFirst(int slot) {
+        prev[slot] = -1;
+        next[slot] = head;
+        if (head != -1) prev[head] = slot;
+        head = slot;
+        if (tail == -1) tail = slot;
+    }
+
+    @Override
+    public boolean access(int page) {
+        int slot = index.get(page);
+        if (slot >= 0) {
+            if (slot != head) {
+                unlink(slot);
+                linkFirst(slot);
+            }
+            return false;
+        }
+
+        if (used < numFrames) {
+            slot = used++; // fill empty frame first
+        } else {
+            slot = tail; // evict least recently used
+            unlink(slot);
+            index.remove(slotPage[slot]);
+        }
+        slotPage[slot] = page;
+        index.put(page, slot);
+        linkFirst(slot);
+        return true;
+    }
+
+    @Override
+    public int[] residentPages() {
+        int[] resident = Arrays.copyOf(slotPage, numFrames);
+        Arrays.fill(resident, used, numFrames, -1);
+        return resident;
+    }
+
+    @Override
+    protected void replacePage() {
+        for (int i = 0; i < pagesLength; i++) {
+            if (access(pages[i])) pageFault++;
+        }
+        displayCounts();
+    }
+}
+
+// Optimal (Belady) Page Replacement with precomputed next-use links.
+// nextUse[i] is the position of the next reference to pages[i], built in one
+// backward pass; resident pages sit in an indexed max-heap keyed on next use,
+// so each eviction costs O(log frames).
+class FastOptimal extends PageReplacementAlgorithm implements StreamingPolicy {
+    private static final int NEVER = Integer.MAX_VALUE;
+    private final int[] nextUse;
+
+    private final int[] slotPage = new int[numFrames];
+    private final int[] key = new int[numFrames];     // slot -> position of next use
+    private final int[] heap = new int[numFrames];    // heap position -> slot
+    private final int[] heapPos = new int[numFrames]; // slot -> heap position
+    private final PageIndex index = new PageIndex(numFrames);
+    private int used = 0, position = 0;
+
+    public FastOptimal(int numFrames, int[] pages) {
+        super(numFrames, pages, false);
+        this.nextUse = buildNextUse(PageTrace.of(pages));
+    }
+
+    // Streaming mode over a mapped trace; run() must replay the same trace
+    public FastOptimal(int numFrames, PageTrace trace) {
+        super(numFrames);
+        this.nextUse = buildNextUse(trace);
+    }
+
+    // Shares next-use links already built for trace (they are only read)
+    public FastOptimal(int numFrames, PageTrace trace, int[] nextUse) {
+        super(numFrames);
+        if (nextUse.length != trace.length()) throw new IllegalArgumentException("Next-use links do not match trace");
+        this.nextUse = nextUse;
+    }
+
+    static int[] buildNextUse(PageTrace trace) {
+        if (trace.length() > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Trace too long for Optimal: " + trace.length());
+        }
+        int[] nextUse = new int[(int) trace.length()];
+        PageIndex seen = new PageIndex(1024);
+        for (int i = nextUse.length - 1; i >= 0; i--) {
+            int page = trace.get(i);
+            int next = seen.get(page);
+            nextUse[i] = (next == -1) ? NEVER : next;
+            seen.put(page, i);
+        }
+        return nextUse;
+    }
+
+    private void swap(int a, int b) {
+        int sa = heap[a], sb = heap[b];
+        heap[a] = sb;
+        heap[b] = sa;
+        heapPos[sb] = a;
+        heapPos[sa] = b;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (key[heap[parent]] >= key[heap[i]]) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= used) break;
+            int largest = left;
+            int right = left + 1;
+            if (right < used && key[heap[right]] > key[heap[left]]) largest = right;
+            if (key[heap[i]] >= key[heap[largest]]) break;
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    // References must arrive in the same order as the trace given to the constructor
+    @Override
+    public boolean access(int page) {
+        int next = nextUse[position++];
+        int slot = index.get(page);
+        if (slot >= 0) {
+            key[slot] = next; // next use only moves later
+            siftUp(heapPos[slot]);
+            return false;
+        }
+
+        if (used < numFrames) {
+            slot = used; // fill empty frame first
+            heap[used] = slot;
+            heapPos[slot] = used;
+            used++;
+            key[slot] = next;
+            siftUp(heapPos[slot]);
+        } else {
+            slot = heap[0]; // evict page used furthest in the future
+            index.remove(slotPage[slot]);
+            key[slot] = next;
+            siftDown(0);
+        }
+        slotPage[slot] = page;
+        index.put(page, slot);
+        return true;
+    }
+
+    @Override
+    public int[] residentPages() {
+        int[] resident = Arrays.copyOf(slotPage, numFrames);
+        Arrays.fill(resident, used, numFrames, -1);
+        return resident;
+    }
+
+    @Override
+    protected void replacePage() {
+        for (int i = 0; i < pagesLength; i++) {
+            if (access(pages[i])) pageFault++;
+        }
+        displayCounts();
+    }
+}
+
+// CLOCK (Second-Chance) Page Replacement: a FIFO ring whose hand skips
+// (and clears) pages referenced since they were loaded. Amortized O(1).
+class Clock implements StreamingPolicy {
+    private final int numFrames;
+    private final int[] slotPage;
+    private final boolean[] referenced;
+    private final PageIndex index;
+    private int hand = 0, used = 0;
+
+    public Clock(int numFrames) {
+        this.numFrames = PageReplacementAlgorithm.checkFrames(numFrames);
+        this.slotPage = new int[numFrames];
+        this.referenced = new boolean[numFrames];
+        this.index = new PageIndex(numFrames);
+    }
+
+    @Override
+    public boolean access(int page) {
+        int slot = index.get(page);
+        if (slot >= 0) {
+            referenced[slot] = true;
+            return false;
+        }
+
+        if (used < numFrames) {
+            slot = used++; // fill empty frame first
+        } else {
+            while (referenced[hand]) { // second chance
+                referenced[hand] = false;
+                if (++hand == numFrames) hand = 0;
+            }
+            slot = hand;
+            index.remove(slotPage[slot]);
+            if (++hand == numFrames) hand = 0;
+        }
+        slotPage[slot] = page;
+        referenced[slot] = false;
+        index.put(page, slot);
+        return true;
+    }
+
+    @Override
+    public int[] residentPages() {
+        int[] resident = Arrays.copyOf(slotPage, numFrames);
+        Arrays.fill(resident, used, numFrames, -1);
+        return resident;
+    }
+}
+
+// LFU Page Replacement with aging: resident pages sit in an indexed min-heap
+// keyed on (use count, last use); every agingPeriod references all counts
+// are halved so pages that were hot long ago eventually leave. O(log frames).
+class LFU implements StreamingPolicy {
+    private final int numFrames;
+    private final int[] slotPage;
+    private final int[] count;
+    private final long[] lastUse;
+    private final int[] heap;    // heap position -> slot
+    private final int[] heapPos; // slot -> heap position
+    private final PageIndex index;
+    private final long agingPeriod;
+    private int used = 0;
+    private long clock = 0;
+
+    public LFU(int numFrames) {
+        this(numFrames, Math.max(1024, 8L * numFrames));
+    }
+
+    public LFU(int numFrames, long agingPeriod) {
+        this.numFrames = PageReplacementAlgorithm.checkFrames(numFrames);
+        this.slotPage = new int[numFrames];
+        this.count = new int[numFrames];
+        this.lastUse = new long[numFrames];
+        this.heap = new int[numFrames];
+        this.heapPos = new int[numFrames];
+        this.index = new PageIndex(numFrames);
+        this.agingPeriod = agingPeriod;
+    }
+
+    private boolean less(int a, int b) {
+        return count[a] < count[b] || (count[a] == count[b] && lastUse[a] < lastUse[b]);
+    }
+
+    private void swap(int a, int b) {
+        int sa = heap[a], sb = heap[b];
+        heap[a] = sb;
+        heap[b] = sa;
+        heapPos[sb] = a;
+        heapPos[sa] = b;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(heap[i], heap[parent])) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= used) break;
+            int smallest = left;
+            int right = left + 1;
+            if (right < used && less(heap[right], heap[left])) smallest = right;
+            if (!less(heap[smallest], heap[i])) break;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void age() {
+        for (int i = 0; i < used; i++) count[heap[i]] >>>= 1;
+        for (int i = (used >>> 1) - 1; i >= 0; i--) siftDown(i); // halving can reorder ties
+    }
+
+    @Override
+    public boolean access(int page) {
+        clock++;
+        if (clock % agingPeriod == 0) age();
+
+        int slot = index.get(page);
+        if (slot >= 0) {
+            if (count[slot] < Integer.MAX_VALUE) count[slot]++;
+            lastUse[slot] = clock;
+            siftDown(heapPos[slot]);
+            return false;
+        }
+
+        if (used < numFrames) {
+            slot = used; // fill empty frame first
+            heap[used] = slot;
+            heapPos[slot] = used;
+            used++;
+            count[slot] = 1;
+            lastUse[slot] = clock;
+            siftUp(heapPos[slot]);
+        } else {
+            slot = heap[0]; // evict least frequently used
+            index.remove(slotPage[slot]);
+            count[slot] = 1;
+            lastUse[slot] = clock;
+            siftDown(0);
+        }
+        slotPage[slot] = page;
+        index.put(page, slot);
+        return true;
+    }
+
+    @Override
+    public int[] residentPages() {
+        int[] resident = Arrays.copyOf(slotPage, numFrames);
+        Arrays.fill(resident, used, numFrames, -1);
+        return resident;
+    }
+}
+
+// Pool of page nodes threaded onto a few intrusive doubly-linked lists
+// (head = most recent, tail = oldest); shared by ARC and 2Q.
+class PageLists {
+    private final int[] page, prev, next, owner;
+    private final int[] head, tail, size;
+    private final int[] free;
+    private int freeCount;
+
+    PageLists(int capacity, int lists) {
+        page = new int[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        owner = new int[capacity];
+        head = new int[lists];
+        tail = new int[lists];
+        size = new int[lists];
+        Arrays.fill(head, -1);
+        Arrays.fill(tail, -1);
+        free = new int[capacity];
+        for (int i = 0; i < capacity; i++) free[i] = capacity - 1 - i;
+        freeCount = capacity;
+    }
+
+    int allocate(int p) {
+        int node = free[--freeCount];
+        page[node] = p;
+        owner[node] = -1;
+        return node;
+    }
+
+    void release(int node) {
+        unlink(node);
+        free[freeCount++] = node;
+    }
+
+    int page(int node) { return page[node]; }
+    int owner(int node) { return owner[node]; }
+    int size(int list) { return size[list]; }
+    int head(int list) { return head[list]; }
+    int tail(int list) { return tail[list]; }
+    int next(int node) { return next[node]; }
+
+    void unlink(int node) {
+        int list = owner[node];
+        if (list == -1) return;
+        int p = prev[node], n = next[node];
+        if (p == -1) head[list] = n; else next[p] = n;
+        if (n == -1) tail[list] = p; else prev[n] = p;
+        size[list]--;
+        owner[node] = -1;
+    }
+
+    // Moves node (from whatever list it is on) to the head of list
+    void pushFront(int list, int node) {
+        unlink(node);
+        prev[node] = -1;
+        next[node] = head[list];
+        if (head[list] != -1) prev[head[list]] = node;
+        head[list] = node;
+        if (tail[list] == -1) tail[list] = node;
+        owner[node] = list;
+        size[list]++;
+    }
+
+    // Resident pages of the given lists, padded with -1 to length
+    int[] collect(int length, int... lists) {
+        int[] pages = new int[length];
+        Arrays.fill(pages, -1);
+        int i = 0;
+        for (int list : lists) {
+            for (int node = head[list]; node != -1 && i < length; node = next[node]) pages[i++] = page[node];
+        }
+        return pages;
+    }
+}
+
+// ARC (Adaptive Replacement Cache): resident lists T1 (seen once) and T2
+// (seen again) plus ghost lists B1/B2 of recently evicted pages; ghost hits
+// move the target size p of T1 towards recency or frequency. O(1).
+class ARC implements StreamingPolicy {
+    private static final int T1 = 0, T2 = 1, B1 = 2, B2 = 3;
+    private final int numFrames;
+    private final PageLists lists;
+    private final PageIndex index; // page -> node
+    private int target = 0; // p: target size of T1
+
+    public ARC(int numFrames) {
+        this.numFrames = PageReplacementAlgorithm.checkFrames(numFrames);
+        this.lists = new PageLists(2 * numFrames, 4);
+        this.index = new PageIndex(2 * numFrames);
+    }
+
+    @Override
+    public boolean access(int page) {
+        int c = numFrames;
+        int node = index.get(page);
+        int list = (node == -1) ? -1 : lists.owner(node);
+
+        if (list == T1 || list == T2) {
+            lists.pushFront(T2, node);
+            return false;
+        }
+
+        if (list == B1) {
+            target = Math.min(c, target + Math.max(lists.size(B2) / lists.size(B1), 1));
+            replace(false);
+            lists.pushFront(T2, node);
+            return true;
+        }
+
+        if (list == B2) {
+            target = Math.max(0, target - Math.max(lists.size(B1) / lists.size(B2), 1));
+            replace(true);
+            lists.pushFront(T2, node);
+            return true;
+        }
+
+        int l1 = lists.size(T1) + lists.size(B1);
+        int total = l1 + lists.size(T2) + lists.size(B2);
+        if (l1 == c) {
+            if (lists.size(T1) < c) {
+                discard(lists.tail(B1));
+                replace(false);
+            } else {
+                discard(lists.tail(T1));
+            }
+        } else if (total >= c) {
+            if (total == 2 * c) discard(lists.tail(B2));
+            replace(false);
+        }
+        node = lists.allocate(page);
+        index.put(page, node);
+        lists.pushFront(T1, node);
+        return true;
+    }
+
+    // Evicts the LRU page of T1 or T2 into the matching ghost list
+    private void replace(boolean hitInB2) {
+        int t1 = lists.size(T1);
+        if (t1 >= 1 && ((hitInB2 && t1 == target) || t1 > target)) {
+            lists.pushFront(B1, lists.tail(T1));
+        } else {
+            lists.pushFront(B2, lists.tail(T2));
+        }
+    }
+
+    private void discard(int node) {
+        index.remove(lists.page(node));
+        lists.release(node);
+    }
+
+    @Override
+    public int[] residentPages() {
+        return lists.collect(numFrames, T1, T2);
+    }
+}
+
+// 2Q Page Replacement (full version): first-time pages enter the FIFO A1in,
+// pages evicted from A1in are remembered in the ghost FIFO A1out, and a
+// re-reference while remembered promotes the page to the LRU list Am. O(1).
+class TwoQueue implements StreamingPolicy {
+    private static final int A1IN = 0, A1OUT = 1, AM = 2;
+    private final int numFrames;
+    private final int kin, kout;
+    private final PageLists lists;
+    private final PageIndex index; // page -> node
+
+    public TwoQueue(int numFrames) {
+        this.numFrames = PageReplacementAlgorithm.checkFrames(numFrames);
+        this.kin = Math.max(1, numFrames / 4);
+        this.kout = Math.max(1, numFrames / 2);
+        this.lists = new PageLists(numFrames + kout + 1, 3);
+        this.index = new PageIndex(numFrames + kout + 1);
+    }
+
+    @Override
+    public boolean access(int page) {
+        int node = index.get(page);
+        int list = (node == -1) ? -1 : lists.owner(node);
+
+        if (list == AM) {
+            lists.pushFront(AM, node);
+            return false;
+        }
+        if (list == A1IN) return false;
+
+        if (list == A1OUT) lists.unlink(node); // keep reclaim() from discarding it
+        reclaim();
+        if (list == A1OUT) {
+            lists.pushFront(AM, node);
+        } else {
+            node = lists.allocate(page);
+            index.put(page, node);
+            lists.pushFront(A1IN, node);
+        }
+        return true;
+    }
+
+    // Frees a frame if all are in use
+    private void reclaim() {
+        if (lists.size(A1IN) + lists.size(AM) < numFrames) return;
+
+        if (lists.size(A1IN) > kin || lists.size(AM) == 0) {
+            lists.pushFront(A1OUT, lists.tail(A1IN)); // remember evicted page
+            if (lists.size(A1OUT) > kout) discard(lists.tail(A1OUT));
+        } else {
+            discard(lists.tail(AM));
+        }
+    }
+
+    private void discard(int node) {
+        index.remove(lists.page(node));
+        lists.release(node);
+    }
+
+    @Override
+    public int[] residentPages() {
+        return lists.collect(numFrames, A1IN, AM);
+    }
+}
+
+// Result of one (policy, numFrames, trace) simulation
+class SimulationResult {
+    final String policy;
+    final String trace;
+    final int numFrames;
+    final long references;
+    final long faults;
+    final long nanos;
+
+    SimulationResult(String policy, String trace, int numFrames, long references, long faults, long nanos) {
+        this.policy = policy;
+        this.trace = trace;
+        this.numFrames = numFrames;
+        this.references = references;
+        this.faults = faults;
+        this.nanos = nanos;
+    }
+
+    double missRatio() {
+        return (references == 0) ? 0 : (double) faults / references;
+    }
+
+    public String toString() {
+        return String.format("%-8s %-24s %6d %12d %12d %.6f %8.1f",
+                policy, trace, numFrames, references, faults, missRatio(), nanos / 1e6);
+    }
+}
+
+// Fans (policy, numFrames, trace) combinations out over a ForkJoinPool.
+// All jobs read the same mapped traces (and shared next-use links for
+// Optimal); results come back as records in job order, nothing is printed.
+class SimulationRunner {
+    private final ForkJoinPool pool;
+
+    SimulationRunner(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    static StreamingPolicy newPolicy(String policy, int numFrames, PageTrace trace, int[] nextUse) {
+        switch (policy.toUpperCase()) {
+            case "FIFO": return new FIFO(numFrames);
+            case "LRU": return new FastLRU(numFrames);
+            case "OPT":
+            case "OPTIMAL": return new FastOptimal(numFrames, trace, nextUse);
+            case "CLOCK":
+            case "SECOND-CHANCE": return new Clock(numFrames);
+            case "LFU": return new LFU(numFrames);
+            case "ARC": return new ARC(numFrames);
+            case "2Q": return new TwoQueue(numFrames);
+            default: throw new IllegalArgumentException("Unknown policy: " + policy);
+        }
+    }
+
+    static boolean needsNextUse(String policy) {
+        String p = policy.toUpperCase();
+        return p.equals("OPT") || p.equals("OPTIMAL");
+    }
+
+    public List<SimulationResult> run(String[] traceNames, PageTrace[] traces, String[] policies, int[] frameCounts) {
+        Batch batch = new Batch(traceNames, traces, policies, frameCounts);
+
+        // Next-use links are built once per trace and shared by every Optimal job
+        boolean optimal = false;
+        for (String policy : policies) optimal |= needsNextUse(policy);
+        if (optimal) {
+            List<ForkJoinTask<?>> builds = new ArrayList<>();
+            for (int t = 0; t < traces.length; t++) {
+                int trace = t;
+                builds.add(ForkJoinTask.adapt(() -> batch.nextUse[trace] = FastOptimal.buildNextUse(traces[trace])));
+            }
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(builds)));
+        }
+
+        pool.invoke(new Slice(batch, 0, batch.results.length));
+        return Arrays.asList(batch.results);
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // Job j = (trace, policy, frames) in row-major order
+    private static final class Batch {
+        final String[] traceNames;
+        final PageTrace[] traces;
+        final String[] policies;
+        final int[] frameCounts;
+        final int[][] nextUse;
+        final SimulationResult[] results;
+
+        Batch(String[] traceNames, PageTrace[] traces, String[] policies, int[] frameCounts) {
+            this.traceNames = traceNames;
+            this.traces = traces;
+            this.policies = policies;
+            this.frameCounts = frameCounts;
+            this.nextUse = new int[traces.length][];
+            this.results = new SimulationResult[traces.length * policies.length * frameCounts.length];
+        }
+
+        SimulationResult simulate(int job) {
+            int frames = frameCounts[job % frameCounts.length];
+            String policy = policies[(job / frameCounts.length) % policies.length];
+            int t = job / (frameCounts.length * policies.length);
+
+            long start = System.nanoTime();
+            StreamingRun run = new StreamingRun(newPolicy(policy, frames, traces[t], nextUse[t]))
+                    .run(traces[t].iterator());
+            return new SimulationResult(policy, traceNames[t], frames,
+                    run.references, run.faults, System.nanoTime() - start);
+        }
+    }
+
+    private static final class Slice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Batch batch;
+        private final int from, to;
+
+        Slice(Batch batch, int from, int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (from >= to) return; // empty grid
+            if (to - from == 1) {
+                batch.results[from] = batch.simulate(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Slice(batch, from, mid), new Slice(batch, mid, to));
+        }
+    }
+}
+
 // Main Driver Class
 public class PageReplacement {
-    public static void main(String[] args) {
+    // Usage: java PageReplacement [numFrames traceFile [sampleEvery]]
+    //        java PageReplacement --convert text.txt trace.bin
+    //        java PageReplacement --curve maxFrames trace.bin
+    //        java PageReplacement --batch FIFO,LRU,OPT 1-64 trace.bin...
+    // With no arguments the sample trace is shown frame by frame.
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("--convert")) {
+            long count = PageTrace.convert(Paths.get(args[1]), Paths.get(args[2]));
+            System.out.println("Wrote " + count + " references to " + args[2]);
+            return;
+        }
+        if (args.length == 3 && args[0].equals("--curve")) {
+            StackDistance curve = new StackDistance(Integer.parseInt(args[1]));
+            curve.run(PageTrace.open(Paths.get(args[2])));
+            curve.displayCurve();
+            return;
+        }
+        if (args.length >= 4 && args[0].equals("--batch")) {
+            runBatch(args[1].split(","), parseFrameCounts(args[2]), Arrays.copyOfRange(args, 3, args.length));
+            return;
+        }
+        if (args.length >= 2) {
+            long sampleEvery = (args.length > 2) ? Long.parseLong(args[2]) : 0;
+            runStreaming(Integer.parseInt(args[0]), Paths.get(args[1]), sampleEvery);
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
 
         System.out.print("Enter the number of frames: ");
@@ -234,8 +1471,80 @@ public class PageReplacement {
         System.out.println("\nOptimal Page Replacement:");
         optimal.replacePage();
 
+        System.out.println("\nLRU Page Replacement (O(1) per reference):");
+        new FastLRU(numFrames, pages).replacePage();
+
+        System.out.println("\nOptimal Page Replacement (next-use heap):");
+        new FastOptimal(numFrames, pages).replacePage();
+
         scanner.close();
     }
+
+    // Constant-memory run over a trace file: only counters and sampled snapshots.
+    // Binary traces are memory-mapped; text traces are parsed as they stream.
+    static void runStreaming(int numFrames, Path path, long sampleEvery) throws IOException {
+        String[] policies = { "FIFO", "LRU", "CLOCK", "LFU", "ARC", "2Q" };
+        if (PageTrace.isBinary(path)) {
+            PageTrace trace = PageTrace.open(path);
+            for (String policy : policies) {
+                simulate(policy, SimulationRunner.newPolicy(policy, numFrames, trace, null), trace.iterator(), sampleEvery);
+            }
+            simulate("Optimal", new FastOptimal(numFrames, trace), trace.iterator(), sampleEvery);
+            return;
+        }
+
+        for (String policy : policies) {
+            try (TextTraceReader reader = new TextTraceReader(path)) {
+                simulate(policy, SimulationRunner.newPolicy(policy, numFrames, null, null), reader, sampleEvery);
+            }
+        }
+        System.out.println("\n(Optimal needs the whole trace: convert it with --convert to include it)");
+    }
+
+    static void runBatch(String[] policies, int[] frameCounts, String[] files) throws IOException {
+        PageTrace[] traces = new PageTrace[files.length];
+        for (int i = 0; i < files.length; i++) traces[i] = PageTrace.open(Paths.get(files[i]));
+
+        SimulationRunner runner = new SimulationRunner(Runtime.getRuntime().availableProcessors());
+        long start = System.nanoTime();
+        List<SimulationResult> results = runner.run(files, traces, policies, frameCounts);
+        long elapsed = System.nanoTime() - start;
+        runner.shutdown();
+
+        System.out.printf("%-8s %-24s %6s %12s %12s %8s %8s%n",
+                "Policy", "Trace", "Frames", "References", "Faults", "Miss", "ms");
+        for (SimulationResult result : results) System.out.println(result);
+        System.out.printf("%n%d simulations in %.1f ms%n", results.size(), elapsed / 1e6);
+    }
+
+    // "1-64" or "4,8,16" (ranges and single values may be mixed); every
+    // count must be at least 1 and a range must not run backwards
+    static int[] parseFrameCounts(String spec) {
+        List<Integer> counts = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            int dash = part.indexOf('-');
+            int from, to;
+            if (dash < 0) {
+                from = to = Integer.parseInt(part.trim());
+            } else {
+                from = Integer.parseInt(part.substring(0, dash).trim());
+                to = Integer.parseInt(part.substring(dash + 1).trim());
+            }
+            if (from < 1 || to < from) throw new IllegalArgumentException("Bad frame count range: " + part);
+            for (int k = from; k <= to; k++) counts.add(k);
+        }
+        int[] result = new int[counts.size()];
+        for (int i = 0; i < result.length; i++) result[i] = counts.get(i);
+        return result;
+    }
+
+    static void simulate(String name, StreamingPolicy policy,
+                         PrimitiveIterator.OfInt trace, long sampleEvery) {
+        System.out.println("\n" + name + " Page Replacement (streaming):");
+        new StreamingRun(policy).run(trace, sampleEvery, (refs, faults, frames) ->
+                System.out.println("@" + refs + " faults=" + faults + " frames=" + Arrays.toString(frames)))
+                .displayCounts();
+    }
 }
 /*
 OUTPUT 
@@ -1,8 +1,21 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 class Process {
     String pid;
     int arrival, burst, priority, remaining;
+    long firstRun = -1, completion = -1; // filled in by ScheduleMetrics
 
     Process(String pid, int arrival, int burst, int priority) {
         this.pid = pid;
@@ -13,10 +26,747 @@ class Process {
     }
 }
 
+// Struct-of-arrays process table: parallel int[] columns instead of one
+// Process object per job, so large workloads cost a few arrays, not millions
+// of objects. Rows added without a pid (binary traces, the generator) keep
+// null and are named "P1", "P2", ... only when pid(i) asks, so loading a
+// million jobs builds no strings.
+class ProcessTable {
+    String[] pids;
+    int[] arrival, burst, priority, remaining;
+    long[] firstRun, completion;
+    int size;
+
+    ProcessTable(int capacity) {
+        capacity = Math.max(capacity, 4);
+        pids = new String[capacity];
+        arrival = new int[capacity];
+        burst = new int[capacity];
+        priority = new int[capacity];
+        remaining = new int[capacity];
+        firstRun = new long[capacity];
+        completion = new long[capacity];
+    }
+
+    static ProcessTable of(List<Process> processes) {
+        ProcessTable table = new ProcessTable(processes.size());
+        for (Process p : processes) table.add(p.pid, p.arrival, p.burst, p.priority);
+        return table;
+    }
+
+    int add(String pid, int arrivalTime, int burstTime, int prio) {
+        if (size == arrival.length) grow();
+        pids[size] = pid;
+        arrival[size] = arrivalTime;
+        burst[size] = burstTime;
+        priority[size] = prio;
+        remaining[size] = burstTime;
+        firstRun[size] = -1;
+        completion[size] = -1;
+        return size++;
+    }
+
+    String pid(int i) {
+        return pids[i] != null ? pids[i] : "P" + (i + 1);
+    }
+
+    // Object form for the policies that work on Process lists
+    ArrayList<Process> toProcesses() {
+        ArrayList<Process> processes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) processes.add(new Process(pid(i), arrival[i], burst[i], priority[i]));
+        return processes;
+    }
+
+    // Restores remaining time and clears results so another policy can run
+    void reset() {
+        System.arraycopy(burst, 0, remaining, 0, size);
+        Arrays.fill(firstRun, 0, size, -1);
+        Arrays.fill(completion, 0, size, -1);
+    }
+
+    // Row indices sorted by (arrival, row)
+    int[] arrivalOrder() {
+        return arrivalOrder(arrival, size);
+    }
+
+    // Indices 0..n-1 sorted by (arrival[i], i), via one primitive sort
+    static int[] arrivalOrder(int[] arrival, int n) {
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) packed[i] = ((long) arrival[i] << 32) | i;
+        Arrays.sort(packed);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = (int) packed[i];
+        return order;
+    }
+
+    private void grow() {
+        int capacity = arrival.length * 2;
+        pids = Arrays.copyOf(pids, capacity);
+        arrival = Arrays.copyOf(arrival, capacity);
+        burst = Arrays.copyOf(burst, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+        remaining = Arrays.copyOf(remaining, capacity);
+        firstRun = Arrays.copyOf(firstRun, capacity);
+        completion = Arrays.copyOf(completion, capacity);
+    }
+}
+
+// Receives jobs one at a time, in arrival order (pid may be null)
+interface JobSink {
+    void job(String pid, int arrival, int burst, int priority);
+}
+
+// Seeded synthetic workloads: Poisson or bursty (two-state on/off)
+// arrivals, exponential or Pareto (heavy-tailed) bursts, uniform priorities.
+// Jobs are streamed to a JobSink, so nothing has to be held in memory.
+class WorkloadGenerator {
+    enum Arrivals { POISSON, BURSTY }
+    enum Bursts { EXPONENTIAL, PARETO }
+
+    Arrivals arrivals = Arrivals.POISSON;
+    Bursts bursts = Bursts.EXPONENTIAL;
+    double meanInterarrival = 10;
+    double meanBurst = 8;
+    double paretoAlpha = 1.5;      // tail index; must be > 1 for a finite mean
+    double burstFactor = 10;       // bursty: rate multiplier while "on", divisor while "off"
+    double switchProbability = 0.05;
+    int priorities = 5;
+
+    private final SplittableRandom random;
+
+    WorkloadGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    void generate(long count, JobSink sink) {
+        double time = 0;
+        boolean on = false;
+        for (long i = 0; i < count; i++) {
+            double mean = meanInterarrival;
+            if (arrivals == Arrivals.BURSTY) {
+                if (random.nextDouble() < switchProbability) on = !on;
+                mean = on ? meanInterarrival / burstFactor : meanInterarrival * burstFactor;
+            }
+            time += exponential(mean);
+            sink.job(null, (int) Math.min(time, Integer.MAX_VALUE), nextBurst(), random.nextInt(priorities));
+        }
+    }
+
+    ProcessTable table(int count) {
+        ProcessTable table = new ProcessTable(count);
+        generate(count, table::add);
+        return table;
+    }
+
+    private double exponential(double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    private int nextBurst() {
+        double burst;
+        if (bursts == Bursts.PARETO) {
+            double scale = meanBurst * (paretoAlpha - 1) / paretoAlpha; // x_m giving the requested mean
+            burst = scale / Math.pow(1 - random.nextDouble(), 1 / paretoAlpha);
+        } else {
+            burst = exponential(meanBurst);
+        }
+        return (int) Math.max(1, Math.min(Math.round(burst), Integer.MAX_VALUE / 2));
+    }
+}
+
+// Streaming job trace I/O. CSV lines are "pid,arrival,burst,priority" with
+// optional spaces around fields; blank lines, '#' comments and a header on
+// the first line are skipped, and any other line that does not parse fails.
+// The binary layout is magic "JOBS", version (int), job count (long), then
+// little-endian int32 arrival, burst and priority per job, with pids
+// generated from the position. In both forms a job with a negative arrival
+// or a burst below 1 is rejected.
+class JobTrace {
+    static final int MAGIC = 0x4A4F4253;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    static boolean isBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) { }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    // Streams every job of the trace to sink; returns the number of jobs
+    static long read(Path path, JobSink sink) throws IOException {
+        return isBinary(path) ? readBinary(path, sink) : readCsv(path, sink);
+    }
+
+    static ProcessTable load(Path path) throws IOException {
+        ProcessTable table = new ProcessTable(1024);
+        read(path, table::add);
+        return table;
+    }
+
+    private static long readCsv(Path path, JobSink sink) throws IOException {
+        long count = 0, lineNumber = 0;
+        try (BufferedReader in = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                int c1 = line.indexOf(','), c2 = line.indexOf(',', c1 + 1), c3 = line.indexOf(',', c2 + 1);
+                if (c1 < 0 || c2 < 0 || c3 < 0 || line.indexOf(',', c3 + 1) >= 0) {
+                    throw new IOException("Bad job line " + lineNumber + ": " + line);
+                }
+                int arrival, burst, priority;
+                try {
+                    arrival = parseField(line, c1 + 1, c2);
+                    burst = parseField(line, c2 + 1, c3);
+                    priority = parseField(line, c3 + 1, line.length());
+                } catch (NumberFormatException e) {
+                    if (lineNumber == 1) continue; // header
+                    throw new IOException("Bad job line " + lineNumber + ": " + line, e);
+                }
+                if (arrival < 0 || burst <= 0) throw new IOException("Bad job line " + lineNumber + ": " + line);
+                sink.job(line.substring(0, c1).trim(), arrival, burst, priority);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Integer.parseInt on line[from, to) with surrounding spaces ignored
+    private static int parseField(String line, int from, int to) {
+        while (from < to && Character.isWhitespace(line.charAt(from))) from++;
+        while (to > from && Character.isWhitespace(line.charAt(to - 1))) to--;
+        return Integer.parseInt(line, from, to, 10);
+    }
+
+    private static long readBinary(Path path, JobSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(0); // nothing read yet
+            fill(channel, buffer, HEADER_BYTES);
+            if (buffer.getInt() != MAGIC) throw new IOException("Not a job trace: " + path);
+            int version = buffer.getInt();
+            if (version != VERSION) throw new IOException("Unsupported job trace version " + version);
+            long count = buffer.getLong();
+            if (count < 0) throw new IOException("Bad job count " + count);
+
+            for (long i = 0; i < count; i++) {
+                if (buffer.remaining() < 12) fill(channel, buffer, 12);
+                int arrival = buffer.getInt(), burst = buffer.getInt(), priority = buffer.getInt();
+                if (arrival < 0 || burst <= 0) {
+                    throw new IOException("Bad job record " + i + ": arrival " + arrival + ", burst " + burst);
+                }
+                sink.job(null, arrival, burst, priority);
+            }
+            return count;
+        }
+    }
+
+    // Makes at least 'needed' bytes readable, keeping unread ones
+    private static void fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        buffer.compact();
+        while (buffer.position() < needed) {
+            if (channel.read(buffer) < 0) throw new IOException("Truncated job trace");
+        }
+        buffer.flip();
+    }
+
+    // Opens a writer; ".csv" files get CSV, anything else the binary layout
+    static Writer writer(Path path) throws IOException {
+        return path.toString().endsWith(".csv") ? new CsvWriter(path) : new BinaryWriter(path);
+    }
+
+    abstract static class Writer implements JobSink, Closeable {
+        long count;
+    }
+
+    private static final class CsvWriter extends Writer {
+        private final BufferedWriter out;
+
+        CsvWriter(Path path) throws IOException {
+            out = Files.newBufferedWriter(path);
+            out.write("pid,arrival,burst,priority\n");
+        }
+
+        @Override
+        public void job(String pid, int arrival, int burst, int priority) {
+            try {
+                out.write(pid != null ? pid : "P" + (count + 1));
+                out.write(',');
+                out.write(Integer.toString(arrival));
+                out.write(',');
+                out.write(Integer.toString(burst));
+                out.write(',');
+                out.write(Integer.toString(priority));
+                out.write('\n');
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static final class BinaryWriter extends Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+
+        BinaryWriter(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(0); // count patched on close
+        }
+
+        @Override
+        public void job(String pid, int arrival, int burst, int priority) {
+            if (buffer.remaining() < 12) drain();
+            buffer.putInt(arrival).putInt(burst).putInt(priority);
+            count++;
+        }
+
+        private void drain() {
+            try {
+                buffer.flip();
+                while (buffer.hasRemaining()) channel.write(buffer);
+                buffer.clear();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+                buffer.putLong(count).flip();
+                channel.write(buffer, 8);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
+
+// FCFS run directly off a job stream: only the clock and the metrics are
+// kept, never the workload itself. Jobs must come in arrival order; an
+// earlier arrival after a later one is rejected rather than scheduled late.
+class FcfsStream implements JobSink {
+    final ScheduleMetrics metrics;
+    private long time;
+    private int id, lastArrival = Integer.MIN_VALUE;
+
+    FcfsStream(ScheduleMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void job(String pid, int arrival, int burst, int priority) {
+        if (arrival < lastArrival) {
+            throw new IllegalArgumentException("Job " + (pid != null ? pid : "#" + (id + 1)) + " arrives at "
+                    + arrival + ", before the previous job (" + lastArrival + "); FCFS needs jobs sorted by arrival");
+        }
+        lastArrival = arrival;
+        if (time < arrival) time = arrival;
+        metrics.run(id++, time, time + burst);
+        metrics.record(arrival, burst, time, time + burst);
+        time += burst;
+    }
+}
+
+// Binary min-heap over ids 0..n-1 with long keys (ties go to the lower id).
+// heapPos lets a queued id be re-keyed or removed in O(log n).
+class IndexedHeap {
+    private final int[] heap;
+    private final int[] heapPos; // id -> heap position, -1 if absent
+    private final long[] key;
+    private int size;
+
+    IndexedHeap(int capacity) {
+        heap = new int[capacity];
+        heapPos = new int[capacity];
+        key = new long[capacity];
+        Arrays.fill(heapPos, -1);
+    }
+
+    boolean isEmpty() { return size == 0; }
+    int size() { return size; }
+    boolean contains(int id) { return heapPos[id] != -1; }
+    int peek() { return heap[0]; }
+    long key(int id) { return key[id]; }
+
+    void add(int id, long k) {
+        key[id] = k;
+        heap[size] = id;
+        heapPos[id] = size;
+        siftUp(size++);
+    }
+
+    int poll() {
+        int top = heap[0];
+        remove(top);
+        return top;
+    }
+
+    void remove(int id) {
+        int i = heapPos[id];
+        int last = heap[--size];
+        heapPos[id] = -1;
+        if (i == size) return;
+        heap[i] = last;
+        heapPos[last] = i;
+        siftDown(i);
+        siftUp(heapPos[last]);
+    }
+
+    void changeKey(int id, long k) {
+        key[id] = k;
+        siftUp(heapPos[id]);
+        siftDown(heapPos[id]);
+    }
+
+    private boolean less(int a, int b) {
+        return key[a] < key[b] || (key[a] == key[b] && a < b);
+    }
+
+    private void siftUp(int i) {
+        int id = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(id, heap[parent])) break;
+            heap[i] = heap[parent];
+            heapPos[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        heapPos[id] = i;
+    }
+
+    private void siftDown(int i) {
+        int id = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && less(heap[child + 1], heap[child])) child++;
+            if (!less(heap[child], id)) break;
+            heap[i] = heap[child];
+            heapPos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = id;
+        heapPos[id] = i;
+    }
+}
+
+// Receives a schedule as maximal [start, end) runs; pid is null while idle.
+// Time a core spends moving a stolen job over comes through migration()
+// instead, so run() only ever sees real pids.
+interface GanttSink {
+    void run(long start, long end, String pid);
+
+    default void migration(long start, long end, String pid) { }
+}
+
+// Growable ring buffer of ints used as a run queue (no boxing)
+class IntDeque {
+    private int[] items;
+    private int head, size;
+
+    IntDeque(int capacity) {
+        items = new int[Math.max(4, Integer.highestOneBit(Math.max(1, capacity) * 2 - 1))];
+    }
+
+    boolean isEmpty() { return size == 0; }
+    int size() { return size; }
+
+    void addLast(int v) {
+        if (size == items.length) grow();
+        items[(head + size++) & (items.length - 1)] = v;
+    }
+
+    void addFirst(int v) {
+        if (size == items.length) grow();
+        head = (head - 1) & (items.length - 1);
+        items[head] = v;
+        size++;
+    }
+
+    int pollFirst() {
+        int v = items[head];
+        head = (head + 1) & (items.length - 1);
+        size--;
+        return v;
+    }
+
+    int pollLast() {
+        return items[(head + --size) & (items.length - 1)];
+    }
+
+    private void grow() {
+        int[] bigger = new int[items.length * 2];
+        for (int i = 0; i < size; i++) bigger[i] = items[(head + i) & (items.length - 1)];
+        items = bigger;
+        head = 0;
+    }
+}
+
+// Ready-heap ordering key (lower runs first) for a process that became ready at readySince
+interface ReadyKey {
+    long key(Process p, long readySince);
+}
+
+// Merges back-to-back runs of the same process before passing them on
+class GanttBuilder {
+    private final GanttSink sink;
+    private String pid;
+    private long start, end;
+    private boolean open;
+
+    GanttBuilder(GanttSink sink) {
+        this.sink = sink;
+    }
+
+    void run(long from, long to, String who) {
+        if (from == to) return;
+        if (open && from == end && Objects.equals(who, pid)) {
+            end = to;
+            return;
+        }
+        flush();
+        pid = who;
+        start = from;
+        end = to;
+        open = true;
+    }
+
+    // Migration overhead is never merged with a run
+    void migration(long from, long to, String who) {
+        if (from == to) return;
+        flush();
+        sink.migration(from, to, who);
+    }
+
+    void flush() {
+        if (open) sink.run(start, end, pid);
+        open = false;
+    }
+}
+
+// Log-linear histogram (HdrHistogram-style): values below 128 are exact,
+// larger ones land in one of 64 buckets per power of two, so a bucket is at
+// most 1/64 (about 1.6%) of its values wide. Fixed size, so recording never
+// allocates.
+class LatencyHistogram {
+    private static final int SUB_BITS = 7;
+    private static final int HALF = 1 << (SUB_BITS - 1);
+    private final long[] counts = new long[64 * HALF];
+    private long count, sum, max;
+
+    private static int index(long v) {
+        if (v < (1 << SUB_BITS)) return (int) v;
+        int shift = (63 - Long.numberOfLeadingZeros(v)) - (SUB_BITS - 1);
+        return shift * HALF + (int) (v >>> shift);
+    }
+
+    // Largest value that maps to bucket i
+    private static long highest(int i) {
+        if (i < (1 << SUB_BITS)) return i;
+        int shift = i / HALF - 1;
+        return ((long) (i - shift * HALF + 1) << shift) - 1;
+    }
+
+    void record(long v) {
+        if (v < 0) v = 0;
+        counts[index(v)]++;
+        count++;
+        sum += v;
+        if (v > max) max = v;
+    }
+
+    long count() { return count; }
+    long max() { return max; }
+
+    double mean() {
+        return (count == 0) ? 0 : (double) sum / count;
+    }
+
+    long percentile(double p) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(highest(i), max);
+        }
+        return max;
+    }
+}
+
+// Collects per-process times and aggregate counters while a scheduler runs.
+// Per-process results stay on the Process objects; aggregates go straight
+// into fixed-size histograms.
+class ScheduleMetrics {
+    final LatencyHistogram waiting = new LatencyHistogram();
+    final LatencyHistogram turnaround = new LatencyHistogram();
+    final LatencyHistogram response = new LatencyHistogram();
+    long busy, contextSwitches;
+    long firstArrival = Long.MAX_VALUE, lastCompletion = 0;
+    private Process last;
+    private int lastId = -1;
+
+    // p holds the CPU during [start, end)
+    void run(Process p, long start, long end) {
+        if (p.firstRun < 0) p.firstRun = start;
+        if (last != null && last != p) contextSwitches++;
+        last = p;
+        busy += end - start;
+    }
+
+    // ProcessTable row id holds the CPU during [start, end)
+    void run(int id, long start, long end) {
+        if (lastId != -1 && lastId != id) contextSwitches++;
+        lastId = id;
+        busy += end - start;
+    }
+
+    void complete(Process p, long time) {
+        p.completion = time;
+        record(p.arrival, p.burst, p.firstRun, time);
+    }
+
+    void record(long arrival, long burst, long firstRun, long completion) {
+        turnaround.record(completion - arrival);
+        waiting.record(completion - arrival - burst);
+        response.record(firstRun - arrival);
+        if (arrival < firstArrival) firstArrival = arrival;
+        if (completion > lastCompletion) lastCompletion = completion;
+    }
+
+    long makespan() {
+        return (turnaround.count() == 0) ? 0 : lastCompletion - firstArrival;
+    }
+
+    double throughput() {
+        long span = makespan();
+        return (span == 0) ? 0 : (double) turnaround.count() / span;
+    }
+
+    double utilization() {
+        long span = makespan();
+        return (span == 0) ? 0 : (double) busy / span;
+    }
+
+    public String report() {
+        return String.format("Processes: %d  Makespan: %d  Throughput: %.4f/unit  CPU utilization: %.1f%%  Context switches: %d%n",
+                turnaround.count(), makespan(), throughput(), 100 * utilization(), contextSwitches) + latencyTable();
+    }
+
+    // avg/p50/p99/max of waiting, turnaround and response time
+    public String latencyTable() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-11s %10s %10s %10s %10s%n", "", "avg", "p50", "p99", "max"));
+        appendRow(sb, "Waiting", waiting);
+        appendRow(sb, "Turnaround", turnaround);
+        appendRow(sb, "Response", response);
+        return sb.toString();
+    }
+
+    private static void appendRow(StringBuilder sb, String name, LatencyHistogram h) {
+        sb.append(String.format("%-11s %10.2f %10d %10d %10d%n",
+                name, h.mean(), h.percentile(50), h.percentile(99), h.max()));
+    }
+}
+
+// Per-process outcome of a finished schedule
+class ProcessResult {
+    final String pid;
+    final long arrival, burst, firstRun, completion;
+
+    ProcessResult(Process p) {
+        this.pid = p.pid;
+        this.arrival = p.arrival;
+        this.burst = p.burst;
+        this.firstRun = p.firstRun;
+        this.completion = p.completion;
+    }
+
+    long turnaround() { return completion - arrival; }
+    long waiting() { return turnaround() - burst; }
+    long response() { return firstRun - arrival; }
+
+    static List<ProcessResult> of(List<Process> processes) {
+        List<ProcessResult> results = new ArrayList<>(processes.size());
+        for (Process p : processes) results.add(new ProcessResult(p));
+        return results;
+    }
+
+    public String toString() {
+        return String.format("%s: arrival=%d burst=%d start=%d completion=%d waiting=%d turnaround=%d response=%d",
+                pid, arrival, burst, firstRun, completion, waiting(), turnaround(), response());
+    }
+}
+
+// What an idle core does when its own run queue is empty
+enum StealPolicy {
+    NONE,       // stay idle: no migration
+    STEAL_ONE,  // take the newest job from the longest other queue
+    STEAL_HALF  // take half of the longest other queue
+}
+
+// Per-core outcome of an SMP run, plus the shared per-process latencies
+class SmpReport {
+    final ScheduleMetrics metrics = new ScheduleMetrics();
+    final long[] busy, migrationTime, migrations, contextSwitches;
+    long makespan;
+
+    SmpReport(int cores) {
+        busy = new long[cores];
+        migrationTime = new long[cores];
+        migrations = new long[cores];
+        contextSwitches = new long[cores];
+    }
+
+    double utilization(int core) {
+        return (makespan == 0) ? 0 : (double) busy[core] / makespan;
+    }
+
+    // (max - mean) / mean of per-core busy time; 0 means perfectly balanced
+    double imbalance() {
+        long max = 0, total = 0;
+        for (long b : busy) {
+            total += b;
+            max = Math.max(max, b);
+        }
+        double mean = (double) total / busy.length;
+        return (mean == 0) ? 0 : (max - mean) / mean;
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < busy.length; c++) {
+            sb.append(String.format("Core %d: utilization %.1f%%  busy %d  migrations %d (%d units)  context switches %d%n",
+                    c, 100 * utilization(c), busy[c], migrations[c], migrationTime[c], contextSwitches[c]));
+        }
+        sb.append(String.format("Load imbalance: %.3f  Makespan: %d  Throughput: %.4f/unit%n",
+                imbalance(), makespan, metrics.throughput()));
+        sb.append(metrics.latencyTable());
+        return sb.toString();
+    }
+}
+
 public class SPOS_04 {
 
     // ---------- FCFS Scheduling ----------
     public static void fcfs(ArrayList<Process> processes) {
+        fcfs(processes, new ScheduleMetrics());
+    }
+
+    public static void fcfs(ArrayList<Process> processes, ScheduleMetrics metrics) {
         Collections.sort(processes, new Comparator<Process>() {
             public int compare(Process o1, Process o2) {
                 return o1.arrival - o2.arrival;
@@ -27,12 +777,18 @@ public class SPOS_04 {
         for (Process p : processes) {
             if (time < p.arrival) time = p.arrival;
             System.out.println("Time " + time + " -> " + p.pid);
+            metrics.run(p, time, time + p.burst);
             time += p.burst;
+            metrics.complete(p, time);
         }
     }
 
     // ---------- SJF Preemptive Scheduling ----------
     public static void sjfPreemptive(ArrayList<Process> processes) {
+        sjfPreemptive(processes, new ScheduleMetrics());
+    }
+
+    public static void sjfPreemptive(ArrayList<Process> processes, ScheduleMetrics metrics) {
         int time = 0, completed = 0;
         int n = processes.size();
 
@@ -53,8 +809,12 @@ public class SPOS_04 {
 
             if (shortest != null) {
                 System.out.println("Time " + time + " -> " + shortest.pid);
+                metrics.run(shortest, time, time + 1);
                 shortest.remaining--;
-                if (shortest.remaining == 0) completed++;
+                if (shortest.remaining == 0) {
+                    completed++;
+                    metrics.complete(shortest, time + 1);
+                }
             } else {
                 System.out.println("Time " + time + " -> Idle");
             }
@@ -62,8 +822,114 @@ public class SPOS_04 {
         }
     }
 
+    // ---------- SJF Preemptive Scheduling (event-driven) ----------
+    // Same schedule as sjfPreemptive: the ready heap is keyed on remaining
+    // time, ties going to the earlier list position.
+    public static void srtfEvents(ArrayList<Process> processes, GanttSink sink) {
+        srtfEvents(processes, sink, new ScheduleMetrics());
+    }
+
+    public static void srtfEvents(ArrayList<Process> processes, GanttSink sink, ScheduleMetrics metrics) {
+        runEvents(processes, true, (p, readySince) -> p.remaining, sink, metrics);
+    }
+
+    // ---------- Priority Scheduling (event-driven) ----------
+    // Lower priority value runs first, ties going to the earlier list position.
+    // With agingInterval > 0 a waiting process gains one priority level per
+    // agingInterval time units it has waited. All waiting processes age at
+    // the same rate, so the key priority * agingInterval + readySince orders
+    // them correctly without ever being updated.
+    public static void priorityEvents(ArrayList<Process> processes, boolean preemptive,
+                                      int agingInterval, GanttSink sink) {
+        priorityEvents(processes, preemptive, agingInterval, sink, new ScheduleMetrics());
+    }
+
+    public static void priorityEvents(ArrayList<Process> processes, boolean preemptive,
+                                      int agingInterval, GanttSink sink, ScheduleMetrics metrics) {
+        ReadyKey key = (agingInterval > 0)
+                ? (p, readySince) -> (long) p.priority * agingInterval + readySince
+                : (p, readySince) -> p.priority;
+        runEvents(processes, preemptive, key, sink, metrics);
+    }
+
+    // Discrete-event core: jumps from event to event (next arrival, or
+    // completion of the running process) instead of ticking, and skips idle
+    // gaps straight to the next arrival. When preemptive, the running process
+    // goes back into the ready heap at every arrival and the heap decides
+    // again. O(n log n) regardless of burst lengths.
+    static void runEvents(ArrayList<Process> processes, boolean preemptive, ReadyKey key,
+                          GanttSink sink, ScheduleMetrics metrics) {
+        int n = processes.size();
+        int[] order = arrivalOrder(processes);
+        IndexedHeap ready = new IndexedHeap(n);
+        GanttBuilder gantt = new GanttBuilder(sink);
+
+        long time = 0;
+        int next = 0, completed = 0;
+        while (completed < n) {
+            while (next < n && processes.get(order[next]).arrival <= time) {
+                int id = order[next++];
+                Process p = processes.get(id);
+                ready.add(id, key.key(p, p.arrival));
+            }
+
+            if (ready.isEmpty()) {
+                long arrival = processes.get(order[next]).arrival;
+                gantt.run(time, arrival, null);
+                time = arrival;
+                continue;
+            }
+
+            int id = ready.poll();
+            Process p = processes.get(id);
+            long nextArrival = (preemptive && next < n) ? processes.get(order[next]).arrival : Long.MAX_VALUE;
+            long finish = time + p.remaining;
+
+            if (finish <= nextArrival) {
+                gantt.run(time, finish, p.pid);
+                metrics.run(p, time, finish);
+                p.remaining = 0;
+                completed++;
+                metrics.complete(p, finish);
+                time = finish;
+            } else {
+                // Run until the next arrival, then let the heap decide again
+                gantt.run(time, nextArrival, p.pid);
+                metrics.run(p, time, nextArrival);
+                p.remaining -= (int) (nextArrival - time);
+                ready.add(id, key.key(p, nextArrival));
+                time = nextArrival;
+            }
+        }
+        gantt.flush();
+    }
+
+    // List positions sorted by (arrival, position)
+    static int[] arrivalOrder(ArrayList<Process> processes) {
+        int n = processes.size();
+        int[] arrival = new int[n];
+        for (int i = 0; i < n; i++) arrival[i] = processes.get(i).arrival;
+        return ProcessTable.arrivalOrder(arrival, n);
+    }
+
+    // One "Time t -> Pid" line per run
+    static GanttSink printRuns() {
+        return (start, end, pid) -> System.out.println("Time " + start + " -> " + (pid == null ? "Idle" : pid));
+    }
+
+    // One line per time unit, identical to the tick-by-tick methods
+    static GanttSink printTicks() {
+        return (start, end, pid) -> {
+            for (long t = start; t < end; t++) System.out.println("Time " + t + " -> " + (pid == null ? "Idle" : pid));
+        };
+    }
+
     // ---------- Priority Non-Preemptive Scheduling ----------
     public static void priorityNonPreemptive(ArrayList<Process> processes) {
+        priorityNonPreemptive(processes, new ScheduleMetrics());
+    }
+
+    public static void priorityNonPreemptive(ArrayList<Process> processes, ScheduleMetrics metrics) {
         int time = 0, completed = 0;
         int n = processes.size();
 
@@ -79,9 +945,11 @@ public class SPOS_04 {
 
             if (next != null) {
                 System.out.println("Time " + time + " -> " + next.pid);
+                metrics.run(next, time, time + next.burst);
                 time += next.burst;
                 next.remaining = 0;
                 completed++;
+                metrics.complete(next, time);
             } else {
                 System.out.println("Time " + time + " -> Idle");
                 time++;
@@ -89,8 +957,314 @@ public class SPOS_04 {
         }
     }
 
+    // ---------- Multi-Level Feedback Queue Scheduling ----------
+    // Level i runs round robin with quanta[i]; a job that uses up its quantum
+    // at a level drops one level (the last level just goes round robin).
+    // New jobs enter level 0 and preempt a job running at a lower level.
+    // Every boostPeriod time units (0 = never) all jobs return to level 0 so
+    // long jobs cannot starve.
+    public static void mlfq(ArrayList<Process> processes, int[] quanta, int boostPeriod,
+                            GanttSink sink, ScheduleMetrics metrics) {
+        if (quanta.length == 0) throw new IllegalArgumentException("MLFQ needs at least one level");
+        for (int q : quanta) {
+            if (q <= 0) throw new IllegalArgumentException("MLFQ quantum must be positive: " + q);
+        }
+        if (boostPeriod < 0) throw new IllegalArgumentException("Boost period must not be negative: " + boostPeriod);
+        int n = processes.size(), levels = quanta.length;
+        int[] order = arrivalOrder(processes);
+        int[] used = new int[n]; // quantum used at the current level
+        IntDeque[] queues = new IntDeque[levels];
+        for (int l = 0; l < levels; l++) queues[l] = new IntDeque(16);
+        GanttBuilder gantt = new GanttBuilder(sink);
+
+        long time = 0;
+        long nextBoost = (boostPeriod > 0) ? boostPeriod : Long.MAX_VALUE;
+        int next = 0, completed = 0;
+        while (completed < n) {
+            while (next < n && processes.get(order[next]).arrival <= time) queues[0].addLast(order[next++]);
+
+            if (time >= nextBoost) {
+                // Slices stop at nextBoost, so every live job is queued here; jobs
+                // still to arrive have used == 0 and finished ones never run again.
+                // Resetting just the queued jobs is therefore the same as resetting
+                // all n, without the O(n) sweep per boost.
+                for (int i = queues[0].size(); i > 0; i--) {
+                    int id = queues[0].pollFirst();
+                    used[id] = 0;
+                    queues[0].addLast(id);
+                }
+                for (int l = 1; l < levels; l++) {
+                    while (!queues[l].isEmpty()) {
+                        int id = queues[l].pollFirst();
+                        used[id] = 0;
+                        queues[0].addLast(id);
+                    }
+                }
+                // Skip every boost that fell in an idle gap in one step
+                nextBoost += ((time - nextBoost) / boostPeriod + 1) * boostPeriod;
+            }
+
+            int l = 0;
+            while (l < levels && queues[l].isEmpty()) l++;
+            if (l == levels) {
+                long arrival = processes.get(order[next]).arrival;
+                gantt.run(time, arrival, null);
+                time = arrival;
+                continue;
+            }
+
+            int id = queues[l].pollFirst();
+            Process p = processes.get(id);
+            long end = time + Math.min(quanta[l] - used[id], p.remaining);
+            if (l > 0 && next < n) end = Math.min(end, processes.get(order[next]).arrival);
+            end = Math.min(end, nextBoost);
+
+            gantt.run(time, end, p.pid);
+            metrics.run(p, time, end);
+            p.remaining -= (int) (end - time);
+            used[id] += (int) (end - time);
+            time = end;
+
+            // Arrivals during the slice queue up ahead of the job it preempted
+            while (next < n && processes.get(order[next]).arrival <= time) queues[0].addLast(order[next++]);
+
+            if (p.remaining == 0) {
+                completed++;
+                metrics.complete(p, time);
+            } else if (used[id] >= quanta[l]) {
+                used[id] = 0;
+                queues[Math.min(l + 1, levels - 1)].addLast(id);
+            } else {
+                queues[l].addFirst(id); // preempted: resume with the rest of its quantum
+            }
+        }
+        gantt.flush();
+    }
+
+    // ---------- Multi-Core (SMP) Round Robin Scheduling ----------
+    // Each core round-robins its own run queue. Arrivals go to the least
+    // loaded core; an idle core with an empty queue may steal from the longest
+    // other queue, and every stolen job costs migrationCost time units on the
+    // thief before it runs. coreSink (may be null) gives each core its Gantt sink.
+    public static SmpReport smp(ArrayList<Process> processes, int cores, int quantum, StealPolicy steal,
+                                int migrationCost, java.util.function.IntFunction<GanttSink> coreSink) {
+        if (cores <= 0) throw new IllegalArgumentException("Core count must be positive: " + cores);
+        if (quantum <= 0) throw new IllegalArgumentException("Quantum must be positive: " + quantum);
+        int n = processes.size();
+        int[] order = arrivalOrder(processes);
+        IntDeque[] queues = new IntDeque[cores];
+        GanttBuilder[] gantt = new GanttBuilder[cores];
+        int[] running = new int[cores];
+        int[] lastRun = new int[cores];
+        long[] sliceStart = new long[cores], sliceEnd = new long[cores];
+        for (int c = 0; c < cores; c++) {
+            queues[c] = new IntDeque(16);
+            gantt[c] = new GanttBuilder(coreSink == null ? (a, b, pid) -> { } : coreSink.apply(c));
+            running[c] = -1;
+            lastRun[c] = -1;
+        }
+        boolean[] migrated = new boolean[n];
+        SmpReport report = new SmpReport(cores);
+
+        long time = 0;
+        int next = 0, completed = 0;
+        while (completed < n) {
+            // Slices ending now: account, then requeue or complete after admitting arrivals
+            while (next < n && processes.get(order[next]).arrival <= time) {
+                queues[leastLoaded(queues, running)].addLast(order[next++]);
+            }
+            for (int c = 0; c < cores; c++) {
+                if (running[c] == -1 || sliceEnd[c] != time) continue;
+                Process p = processes.get(running[c]);
+                if (p.remaining == 0) {
+                    completed++;
+                    report.metrics.record(p.arrival, p.burst, p.firstRun, time);
+                    p.completion = time;
+                } else {
+                    queues[c].addLast(running[c]);
+                }
+                running[c] = -1;
+            }
+
+            // Idle cores pick up work, stealing if their own queue is empty
+            for (int c = 0; c < cores; c++) {
+                if (running[c] != -1) continue;
+                if (queues[c].isEmpty() && steal != StealPolicy.NONE) stealInto(c, queues, steal, migrated, report);
+                if (queues[c].isEmpty()) continue;
+
+                int id = queues[c].pollFirst();
+                Process p = processes.get(id);
+                long start = time;
+                if (migrated[id]) {
+                    migrated[id] = false;
+                    start += migrationCost;
+                    report.migrationTime[c] += migrationCost;
+                    gantt[c].migration(time, start, p.pid);
+                }
+                long end = start + Math.min(quantum, p.remaining);
+                if (p.firstRun < 0) p.firstRun = start;
+                if (lastRun[c] != -1 && lastRun[c] != id) report.contextSwitches[c]++;
+                lastRun[c] = id;
+                gantt[c].run(start, end, p.pid);
+                report.busy[c] += end - start;
+                p.remaining -= (int) (end - start);
+                running[c] = id;
+                sliceStart[c] = start;
+                sliceEnd[c] = end;
+            }
+
+            // Jump to the next slice end or arrival
+            long nextTime = (next < n) ? processes.get(order[next]).arrival : Long.MAX_VALUE;
+            for (int c = 0; c < cores; c++) {
+                if (running[c] != -1) nextTime = Math.min(nextTime, sliceEnd[c]);
+            }
+            if (nextTime == Long.MAX_VALUE) break;
+            for (int c = 0; c < cores; c++) {
+                if (running[c] == -1) gantt[c].run(time, nextTime, null);
+            }
+            time = nextTime;
+        }
+        for (GanttBuilder g : gantt) g.flush();
+        report.makespan = report.metrics.makespan();
+        return report;
+    }
+
+    private static int leastLoaded(IntDeque[] queues, int[] running) {
+        int best = 0, bestLoad = Integer.MAX_VALUE;
+        for (int c = 0; c < queues.length; c++) {
+            int load = queues[c].size() + (running[c] != -1 ? 1 : 0);
+            if (load < bestLoad) {
+                best = c;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+
+    private static void stealInto(int thief, IntDeque[] queues, StealPolicy steal, boolean[] migrated, SmpReport report) {
+        int victim = -1;
+        for (int c = 0; c < queues.length; c++) {
+            if (c != thief && queues[c].size() > 0 && (victim == -1 || queues[c].size() > queues[victim].size())) victim = c;
+        }
+        if (victim == -1) return;
+
+        int count = (steal == StealPolicy.STEAL_HALF) ? (queues[victim].size() + 1) / 2 : 1;
+        for (int i = 0; i < count; i++) {
+            int id = queues[victim].pollLast();
+            migrated[id] = true;
+            queues[thief].addFirst(id);
+            report.migrations[thief]++;
+        }
+    }
+
+    // ---------- Process-table (struct-of-arrays) versions ----------
+    // Same schedules as fcfs, roundRobin and srtfEvents, but on ProcessTable
+    // rows with int-index queues: nothing is allocated per dispatch. sink may
+    // be null; it gets one call per dispatch and one per idle gap.
+
+    public static void fcfs(ProcessTable table, GanttSink sink, ScheduleMetrics metrics) {
+        long time = 0;
+        for (int id : table.arrivalOrder()) {
+            if (time < table.arrival[id]) {
+                if (sink != null) sink.run(time, table.arrival[id], null);
+                time = table.arrival[id];
+            }
+            long end = time + table.remaining[id];
+            dispatch(table, id, time, end, sink, metrics);
+            table.remaining[id] = 0;
+            complete(table, id, end, metrics);
+            time = end;
+        }
+    }
+
+    public static void roundRobin(ProcessTable table, int quantum, GanttSink sink, ScheduleMetrics metrics) {
+        int n = table.size;
+        int[] order = table.arrivalOrder();
+        IntDeque queue = new IntDeque(n);
+        long time = 0;
+        int next = 0;
+
+        while (next < n || !queue.isEmpty()) {
+            while (next < n && table.arrival[order[next]] <= time) queue.addLast(order[next++]);
+
+            if (queue.isEmpty()) {
+                int arrival = table.arrival[order[next]];
+                if (sink != null) sink.run(time, arrival, null);
+                time = arrival;
+                continue;
+            }
+
+            int id = queue.pollFirst();
+            long end = time + Math.min(quantum, table.remaining[id]);
+            dispatch(table, id, time, end, sink, metrics);
+            table.remaining[id] -= (int) (end - time);
+            time = end;
+
+            while (next < n && table.arrival[order[next]] <= time) queue.addLast(order[next++]);
+
+            if (table.remaining[id] > 0) queue.addLast(id);
+            else complete(table, id, time, metrics);
+        }
+    }
+
+    // Runs are merged, as in srtfEvents
+    public static void srtf(ProcessTable table, GanttSink sink, ScheduleMetrics metrics) {
+        int n = table.size;
+        int[] order = table.arrivalOrder();
+        IndexedHeap ready = new IndexedHeap(n);
+        GanttBuilder gantt = (sink != null) ? new GanttBuilder(sink) : null;
+        long time = 0;
+        int next = 0, completed = 0;
+
+        while (completed < n) {
+            while (next < n && table.arrival[order[next]] <= time) {
+                int id = order[next++];
+                ready.add(id, table.remaining[id]);
+            }
+
+            if (ready.isEmpty()) {
+                int arrival = table.arrival[order[next]];
+                if (gantt != null) gantt.run(time, arrival, null);
+                time = arrival;
+                continue;
+            }
+
+            int id = ready.poll();
+            long nextArrival = (next < n) ? table.arrival[order[next]] : Long.MAX_VALUE;
+            long end = Math.min(time + table.remaining[id], nextArrival);
+            if (gantt != null) gantt.run(time, end, table.pid(id));
+            dispatch(table, id, time, end, null, metrics);
+            table.remaining[id] -= (int) (end - time);
+            time = end;
+
+            if (table.remaining[id] == 0) {
+                completed++;
+                complete(table, id, time, metrics);
+            } else {
+                ready.add(id, table.remaining[id]);
+            }
+        }
+        if (gantt != null) gantt.flush();
+    }
+
+    private static void dispatch(ProcessTable table, int id, long start, long end,
+                                 GanttSink sink, ScheduleMetrics metrics) {
+        if (table.firstRun[id] < 0) table.firstRun[id] = start;
+        if (sink != null) sink.run(start, end, table.pid(id));
+        metrics.run(id, start, end);
+    }
+
+    private static void complete(ProcessTable table, int id, long time, ScheduleMetrics metrics) {
+        table.completion[id] = time;
+        metrics.record(table.arrival[id], table.burst[id], table.firstRun[id], time);
+    }
+
     // ---------- Round Robin Scheduling ----------
     public static void roundRobin(ArrayList<Process> processes, int quantum) {
+        roundRobin(processes, quantum, new ScheduleMetrics());
+    }
+
+    public static void roundRobin(ArrayList<Process> processes, int quantum, ScheduleMetrics metrics) {
         LinkedList<Process> queue = new LinkedList<>();
         int time = 0, i = 0;
         int n = processes.size();
@@ -111,8 +1285,10 @@ public class SPOS_04 {
                 Process p = queue.removeFirst();
                 int execTime = Math.min(quantum, p.remaining);
                 System.out.println("Time " + time + " -> " + p.pid);
+                metrics.run(p, time, time + execTime);
                 time += execTime;
                 p.remaining -= execTime;
+                if (p.remaining == 0) metrics.complete(p, time);
 
                 while (i < n && processes.get(i).arrival <= time) {
                     queue.add(processes.get(i));
@@ -128,24 +1304,107 @@ public class SPOS_04 {
     }
 
     // ---------- Main Function ----------
-    public static void main(String[] args) {
+    // Usage: java SPOS_04 --generate count seed file(.csv|.bin) [poisson|bursty] [exponential|pareto]
+    //        java SPOS_04 --run fcfs|rr|srtf|priority|mlfq file [quantum]
+    // With no arguments the built-in four-process example runs every policy.
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 4 && args[0].equals("--generate")) {
+            WorkloadGenerator generator = new WorkloadGenerator(Long.parseLong(args[2]));
+            if (args.length > 4) generator.arrivals = WorkloadGenerator.Arrivals.valueOf(args[4].toUpperCase());
+            if (args.length > 5) generator.bursts = WorkloadGenerator.Bursts.valueOf(args[5].toUpperCase());
+            try (JobTrace.Writer writer = JobTrace.writer(Paths.get(args[3]))) {
+                generator.generate(Long.parseLong(args[1]), writer);
+                System.out.println("Wrote " + writer.count + " jobs to " + args[3]);
+            }
+            return;
+        }
+        if (args.length >= 3 && args[0].equals("--run")) {
+            int quantum = (args.length > 3) ? Integer.parseInt(args[3]) : 2;
+            System.out.print(runTrace(args[1], Paths.get(args[2]), quantum).report());
+            return;
+        }
+
         ArrayList<Process> processes = new ArrayList<>();
         processes.add(new Process("P1", 0, 5, 2));
         processes.add(new Process("P2", 1, 3, 1));
         processes.add(new Process("P3", 2, 8, 4));
         processes.add(new Process("P4", 3, 6, 3));
 
+        ScheduleMetrics metrics;
+
         System.out.println("\n🔷 FCFS Scheduling");
-        fcfs(cloneList(processes));
+        fcfs(cloneList(processes), metrics = new ScheduleMetrics());
+        System.out.print("\n" + metrics.report());
 
         System.out.println("\n🔷 SJF Preemptive Scheduling");
-        sjfPreemptive(cloneList(processes));
+        sjfPreemptive(cloneList(processes), metrics = new ScheduleMetrics());
+        System.out.print("\n" + metrics.report());
+
+        System.out.println("\n🔷 SJF Preemptive Scheduling (event-driven)");
+        srtfEvents(cloneList(processes), printRuns(), metrics = new ScheduleMetrics());
+        System.out.print("\n" + metrics.report());
 
         System.out.println("\n🔷 Priority Non-Preemptive Scheduling");
-        priorityNonPreemptive(cloneList(processes));
+        priorityNonPreemptive(cloneList(processes), metrics = new ScheduleMetrics());
+        System.out.print("\n" + metrics.report());
+
+        System.out.println("\n🔷 Priority Preemptive Scheduling (event-driven, aging every 4 units)");
+        priorityEvents(cloneList(processes), true, 4, printRuns(), metrics = new ScheduleMetrics());
+        System.out.print("\n" + metrics.report());
 
         System.out.println("\n🔷 Round Robin Scheduling (Quantum = 2)");
-        roundRobin(cloneList(processes), 2);
+        ArrayList<Process> rr = cloneList(processes);
+        roundRobin(rr, 2, metrics = new ScheduleMetrics());
+        System.out.print("\n" + metrics.report());
+        for (ProcessResult result : ProcessResult.of(rr)) System.out.println(result);
+
+        System.out.println("\n🔷 Round Robin Scheduling (Quantum = 2, process table)");
+        ProcessTable table = ProcessTable.of(processes);
+        roundRobin(table, 2, printRuns(), metrics = new ScheduleMetrics());
+        System.out.print("\n" + metrics.report());
+
+        System.out.println("\n🔷 MLFQ Scheduling (quanta 2/4/8, boost every 20)");
+        mlfq(cloneList(processes), new int[] {2, 4, 8}, 20, printRuns(), metrics = new ScheduleMetrics());
+        System.out.print("\n" + metrics.report());
+
+        System.out.println("\n🔷 SMP Round Robin Scheduling (2 cores, Quantum = 2, work stealing, migration cost 1)");
+        SmpReport smp = smp(cloneList(processes), 2, 2, StealPolicy.STEAL_ONE, 1, core -> new GanttSink() {
+            public void run(long start, long end, String pid) {
+                System.out.println("Core " + core + ": Time " + start + " -> " + (pid == null ? "Idle" : pid));
+            }
+
+            public void migration(long start, long end, String pid) {
+                System.out.println("Core " + core + ": Time " + start + " -> Migrating " + pid);
+            }
+        });
+        System.out.print("\n" + smp.report());
+    }
+
+    // Runs one policy over a job trace without printing the schedule.
+    // FCFS streams straight from the file; the others load a ProcessTable.
+    static ScheduleMetrics runTrace(String policy, Path trace, int quantum) throws IOException {
+        ScheduleMetrics metrics = new ScheduleMetrics();
+        switch (policy.toLowerCase()) {
+            case "fcfs":
+                JobTrace.read(trace, new FcfsStream(metrics));
+                break;
+            case "rr":
+                roundRobin(JobTrace.load(trace), quantum, null, metrics);
+                break;
+            case "srtf":
+                srtf(JobTrace.load(trace), null, metrics);
+                break;
+            case "priority":
+                priorityEvents(JobTrace.load(trace).toProcesses(), true, 0, (start, end, pid) -> { }, metrics);
+                break;
+            case "mlfq":
+                mlfq(JobTrace.load(trace).toProcesses(), new int[] {quantum, 2 * quantum, 4 * quantum},
+                        100 * quantum, (start, end, pid) -> { }, metrics);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown policy: " + policy);
+        }
+        return metrics;
     }
 
     // ---------- Clone Helper Function ----------
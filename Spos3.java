@@ -1,11 +1,595 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+// Reader-writer lock protocol shared by the variants below. The lock calls
+// return a stamp that must be passed back to the matching unlock (only the
+// StampedLock variant uses it; the others return 0).
+interface RwLock {
+    long readLock() throws InterruptedException;
+    void readUnlock(long stamp);
+    long writeLock() throws InterruptedException;
+    void writeUnlock(long stamp);
+
+    // Runs body with shared access and returns its result. Variants with
+    // optimistic reads may run body more than once, so it must only read.
+    default <T> T read(Supplier<T> body) throws InterruptedException {
+        long stamp = readLock();
+        try {
+            return body.get();
+        } finally {
+            readUnlock(stamp);
+        }
+    }
+}
+
+// Classic reader-preference solution: the first reader in locks writers out
+// and the last reader out lets them in. Writers starve under a steady stream
+// of readers, and every reader serializes on mutex to update the count.
+class SemaphoreRwLock implements RwLock {
+    private final Semaphore mutex = new Semaphore(1);       // For reader count update
+    private final Semaphore writeLock = new Semaphore(1);   // For writers
+    private int readerCount = 0;
+
+    public long readLock() throws InterruptedException {
+        mutex.acquire();
+        readerCount++;
+        if (readerCount == 1) {
+            try {
+                writeLock.acquire(); // First reader locks writers
+            } catch (InterruptedException e) {
+                readerCount--;
+                mutex.release();
+                throw e;
+            }
+        }
+        mutex.release();
+        return 0;
+    }
+
+    public void readUnlock(long stamp) {
+        mutex.acquireUninterruptibly();
+        readerCount--;
+        if (readerCount == 0) {
+            writeLock.release(); // Last reader releases writer lock
+        }
+        mutex.release();
+    }
+
+    public long writeLock() throws InterruptedException {
+        writeLock.acquire();
+        return 0;
+    }
+
+    public void writeUnlock(long stamp) {
+        writeLock.release();
+    }
+}
+
+// Fair (starvation-free) variant: every reader and writer first passes a
+// FIFO turnstile. A waiting writer holds the turnstile, so readers arriving
+// after it queue up behind it instead of overtaking it.
+class FairRwLock implements RwLock {
+    private final Semaphore turnstile = new Semaphore(1, true);
+    private final Semaphore mutex = new Semaphore(1);
+    private final Semaphore resource = new Semaphore(1);
+    private int readerCount = 0;
+
+    public long readLock() throws InterruptedException {
+        turnstile.acquire();
+        try {
+            mutex.acquire();
+            try {
+                if (readerCount == 0) resource.acquire();
+                readerCount++;
+            } finally {
+                mutex.release();
+            }
+        } finally {
+            turnstile.release();
+        }
+        return 0;
+    }
+
+    public void readUnlock(long stamp) {
+        mutex.acquireUninterruptibly();
+        readerCount--;
+        if (readerCount == 0) resource.release();
+        mutex.release();
+    }
+
+    public long writeLock() throws InterruptedException {
+        turnstile.acquire();
+        try {
+            resource.acquire();
+        } finally {
+            turnstile.release();
+        }
+        return 0;
+    }
+
+    public void writeUnlock(long stamp) {
+        resource.release();
+    }
+}
+
+// java.util.concurrent's fair ReentrantReadWriteLock, as a baseline.
+// Unlike the semaphore variants it must be released by the acquiring thread.
+class JdkRwLock implements RwLock {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+
+    public long readLock() throws InterruptedException {
+        lock.readLock().lockInterruptibly();
+        return 0;
+    }
+
+    public void readUnlock(long stamp) {
+        lock.readLock().unlock();
+    }
+
+    public long writeLock() throws InterruptedException {
+        lock.writeLock().lockInterruptibly();
+        return 0;
+    }
+
+    public void writeUnlock(long stamp) {
+        lock.writeLock().unlock();
+    }
+}
+
+// StampedLock variant. read() first tries an optimistic read, which only
+// loads the lock state: readers write no shared memory at all unless a
+// writer got in during the read, in which case the read is retried under a
+// real read lock. StampedLock is not reentrant and favours neither side.
+class StampedRwLock implements RwLock {
+    private final StampedLock lock = new StampedLock();
+
+    public long readLock() throws InterruptedException {
+        return lock.readLockInterruptibly();
+    }
+
+    public void readUnlock(long stamp) {
+        lock.unlockRead(stamp);
+    }
+
+    public long writeLock() throws InterruptedException {
+        return lock.writeLockInterruptibly();
+    }
+
+    public void writeUnlock(long stamp) {
+        lock.unlockWrite(stamp);
+    }
+
+    @Override
+    public <T> T read(Supplier<T> body) throws InterruptedException {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            T result = body.get();
+            if (lock.validate(stamp)) return result;
+        }
+        return RwLock.super.read(body);
+    }
+}
+
+// Reader-writer lock with a striped reader indicator. Instead of one
+// readerCount behind a mutex, each reader increments a counter chosen by
+// its thread id, and every counter sits on its own cache line. Readers
+// touch no shared line unless a writer is active. A writer announces itself
+// through the writer flag and waits until every stripe drains to zero.
+// Readers that see the flag back out and wait for the writer to finish, so
+// writers are preferred. The stamp is the reader's stripe.
+class StripedRwLock implements RwLock {
+    private static final int PAD = 16; // longs per stripe: 128 bytes
+
+    private final int mask;
+    private final AtomicLongArray counts;
+    private final Semaphore writers = new Semaphore(1);
+    private final ReentrantLock gate = new ReentrantLock();
+    private final Condition writerDone = gate.newCondition();
+    private volatile boolean writer;
+    private volatile Thread waitingWriter;
+
+    StripedRwLock() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    StripedRwLock(int stripes) {
+        int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        mask = n - 1;
+        counts = new AtomicLongArray((n + 1) * PAD); // leading pad keeps stripe 0 off the array header
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    }
+
+    public long readLock() throws InterruptedException {
+        int stripe = stripe();
+        while (true) {
+            counts.getAndIncrement((stripe + 1) * PAD);
+            if (!writer) return stripe;
+
+            // A writer is draining readers or writing: back out and wait for it
+            readUnlock(stripe);
+            gate.lockInterruptibly();
+            try {
+                while (writer) writerDone.await();
+            } finally {
+                gate.unlock();
+            }
+        }
+    }
+
+    public void readUnlock(long stamp) {
+        counts.getAndDecrement(((int) stamp + 1) * PAD);
+        if (writer) LockSupport.unpark(waitingWriter);
+    }
+
+    public long writeLock() throws InterruptedException {
+        writers.acquire();
+        waitingWriter = Thread.currentThread();
+        writer = true;
+        while (readers() != 0) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                writeUnlock(0);
+                throw new InterruptedException();
+            }
+        }
+        return 0;
+    }
+
+    public void writeUnlock(long stamp) {
+        gate.lock();
+        try {
+            writer = false;
+            writerDone.signalAll();
+        } finally {
+            gate.unlock();
+        }
+        writers.release();
+    }
+
+    private long readers() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) sum += counts.get((i + 1) * PAD);
+        return sum;
+    }
+}
+
+// Shared int -> long map, the resource the reader-writer variants protect.
+// Absent keys read as 0. sum() reads all its keys from one consistent state.
+interface SharedMap {
+    long get(int key) throws InterruptedException;
+    long sum(int[] keys) throws InterruptedException;
+    void put(int key, long value) throws InterruptedException;
+}
+
+// HashMap guarded by any of the RwLock variants
+class LockedMap implements SharedMap {
+    private final RwLock lock;
+    private final Map<Integer, Long> map = new HashMap<>();
+
+    LockedMap(RwLock lock) {
+        this.lock = lock;
+    }
+
+    public long get(int key) throws InterruptedException {
+        long stamp = lock.readLock();
+        try {
+            return map.getOrDefault(key, 0L);
+        } finally {
+            lock.readUnlock(stamp);
+        }
+    }
+
+    public long sum(int[] keys) throws InterruptedException {
+        long stamp = lock.readLock();
+        try {
+            long sum = 0;
+            for (int key : keys) sum += map.getOrDefault(key, 0L);
+            return sum;
+        } finally {
+            lock.readUnlock(stamp);
+        }
+    }
+
+    public void put(int key, long value) throws InterruptedException {
+        long stamp = lock.writeLock();
+        try {
+            map.put(key, value);
+        } finally {
+            lock.writeUnlock(stamp);
+        }
+    }
+}
+
+// Copy-on-write snapshots: readers use whatever map is current without any
+// locking; a writer copies it, applies the change and publishes the copy
+// with one volatile write. A published map is never modified again. Writes
+// cost O(size), so this suits small maps that are rarely updated.
+class CopyOnWriteMap implements SharedMap {
+    private final Semaphore writers = new Semaphore(1);
+    private volatile Map<Integer, Long> current = new HashMap<>();
+
+    public long get(int key) {
+        return current.getOrDefault(key, 0L);
+    }
+
+    public long sum(int[] keys) {
+        Map<Integer, Long> snapshot = current;
+        long sum = 0;
+        for (int key : keys) sum += snapshot.getOrDefault(key, 0L);
+        return sum;
+    }
+
+    public void put(int key, long value) throws InterruptedException {
+        writers.acquire();
+        try {
+            Map<Integer, Long> copy = new HashMap<>(current);
+            copy.put(key, value);
+            current = copy;
+        } finally {
+            writers.release();
+        }
+    }
+}
+
+// Multi-version map. Every key has a chain of versions, newest first, and
+// committed is the latest published version number. A reader takes
+// committed as its snapshot and, per key, uses the newest version not newer
+// than it, so writes in progress are invisible and reads need no lock.
+// A writer prepends a version and then publishes it by advancing committed,
+// so updates to existing keys are O(1). Only inserting a new key copies the
+// (immutable) key index. Chains keep at most HISTORY versions; a reader
+// whose snapshot fell behind that retries with a fresh one.
+class MvccMap implements SharedMap {
+    private static final int HISTORY = 8;
+    // Sentinel for "the version this snapshot needs is gone", so
+    // Long.MIN_VALUE is not a storable value
+    private static final long PRUNED = Long.MIN_VALUE;
+
+    private static final class Version {
+        final long version;
+        final long value;
+        volatile Version older;
+
+        Version(long version, long value, Version older) {
+            this.version = version;
+            this.value = value;
+            this.older = older;
+        }
+    }
+
+    private static final class Chain {
+        final long created; // version that inserted the key
+        volatile Version head;
+
+        Chain(long created) {
+            this.created = created;
+        }
+    }
+
+    private final Semaphore writers = new Semaphore(1);
+    private volatile Map<Integer, Chain> index = new HashMap<>();
+    private volatile long committed = 0;
+
+    public long get(int key) {
+        while (true) {
+            long snapshot = committed;
+            long value = read(index.get(key), snapshot);
+            if (value != PRUNED) return value;
+        }
+    }
+
+    public long sum(int[] keys) {
+        retry:
+        while (true) {
+            long snapshot = committed;
+            Map<Integer, Chain> chains = index;
+            long sum = 0;
+            for (int key : keys) {
+                long value = read(chains.get(key), snapshot);
+                if (value == PRUNED) continue retry;
+                sum += value;
+            }
+            return sum;
+        }
+    }
+
+    private static long read(Chain chain, long snapshot) {
+        if (chain == null || chain.created > snapshot) return 0;
+        for (Version v = chain.head; v != null; v = v.older) {
+            if (v.version <= snapshot) return v.value;
+        }
+        return PRUNED;
+    }
+
+    public void put(int key, long value) throws InterruptedException {
+        if (value == PRUNED) throw new IllegalArgumentException("Value not storable: " + value);
+        writers.acquire();
+        try {
+            long version = committed + 1;
+            Chain chain = index.get(key);
+            if (chain == null) {
+                chain = new Chain(version);
+                chain.head = new Version(version, value, null);
+                Map<Integer, Chain> copy = new HashMap<>(index);
+                copy.put(key, chain);
+                index = copy;
+            } else {
+                Version head = new Version(version, value, chain.head);
+                chain.head = head;
+                Version last = head;
+                for (int i = 1; i < HISTORY && last.older != null; i++) last = last.older;
+                last.older = null;
+            }
+            committed = version;
+        } finally {
+            writers.release();
+        }
+    }
+}
+
+// Load generator for the RwLock variants. Each operation is one short-lived
+// reader or writer task: it thinks for an exponentially distributed time,
+// acquires the lock, holds it for the critical-section length and leaves.
+// All tasks are submitted at once, to virtual threads when the JDK has them
+// (looked up reflectively, JDK 21+) and otherwise to a fixed pool.
+class RwLoadHarness {
+    int operations = 100_000;
+    double writeRatio = 0.1;
+    long thinkNanos = 1_000_000;      // mean think time before each operation
+    long criticalNanos = 100_000;     // time the lock is held
+    int threads = 0;                  // pool size; 0 = virtual threads if available
+    long seed = 42;
+
+    private static final int FALLBACK_THREADS = 256;
+
+    ExecutorService newExecutor() {
+        if (threads <= 0) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Before JDK 21: fall through to a platform pool
+            }
+        }
+        return Executors.newFixedThreadPool((threads > 0) ? threads : FALLBACK_THREADS);
+    }
+
+    String executorName() {
+        if (threads <= 0) {
+            try {
+                Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return "virtual threads";
+            } catch (NoSuchMethodException e) {
+                // Reported as the fallback pool below
+            }
+        }
+        return ((threads > 0) ? threads : FALLBACK_THREADS) + " platform threads";
+    }
+
+    // One reader or writer operation; returns the latency to report, in ns
+    private interface Operation {
+        long run(int op, boolean write) throws InterruptedException;
+    }
+
+    // Latency is the time to acquire the lock, which is then held for
+    // criticalNanos
+    String run(String name, RwLock lock) throws InterruptedException {
+        return run(name, (op, write) -> {
+            long t0 = System.nanoTime();
+            long stamp = write ? lock.writeLock() : lock.readLock();
+            long wait = System.nanoTime() - t0;
+            try {
+                pause(criticalNanos);
+            } finally {
+                if (write) lock.writeUnlock(stamp); else lock.readUnlock(stamp);
+            }
+            return wait;
+        });
+    }
+
+    // Readers get and writers put a random key out of keys (all present);
+    // latency is the whole call
+    String run(String name, SharedMap map, int keys) throws InterruptedException {
+        for (int k = 0; k < keys; k++) map.put(k, k);
+        return run(name, (op, write) -> {
+            int key = ThreadLocalRandom.current().nextInt(keys);
+            long t0 = System.nanoTime();
+            if (write) map.put(key, op); else map.get(key);
+            return System.nanoTime() - t0;
+        });
+    }
+
+    private String run(String name, Operation operation) throws InterruptedException {
+        boolean[] write = new boolean[operations];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < operations; i++) write[i] = random.nextDouble() < writeRatio;
+
+        long[] wait = new long[operations]; // latency per operation, ns
+        ExecutorService pool = newExecutor();
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            int op = i;
+            pool.execute(() -> {
+                try {
+                    pause((long) (-thinkNanos * Math.log(1 - ThreadLocalRandom.current().nextDouble())));
+                    wait[op] = operation.run(op, write[op]);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        long elapsed = System.nanoTime() - start;
+
+        int writes = 0;
+        for (boolean w : write) if (w) writes++;
+        long[] readWaits = new long[operations - writes], writeWaits = new long[writes];
+        for (int i = 0, r = 0, w = 0; i < operations; i++) {
+            if (write[i]) writeWaits[w++] = wait[i]; else readWaits[r++] = wait[i];
+        }
+        Arrays.sort(readWaits);
+        Arrays.sort(writeWaits);
+
+        return String.format("%-10s %12.0f   %9.1f %9.1f %9.1f   %9.1f %9.1f %9.1f %11.1f",
+                name, operations * 1e9 / elapsed,
+                micros(readWaits, 0.50), micros(readWaits, 0.99), micros(readWaits, 0.999),
+                micros(writeWaits, 0.50), micros(writeWaits, 0.99), micros(writeWaits, 0.999),
+                micros(writeWaits, 1.0));
+    }
+
+    String header(String workload) {
+        return String.format("%d operations, %.0f%% writes, think %d us, %s, %s%n",
+                operations, writeRatio * 100, thinkNanos / 1000, workload, executorName())
+                + String.format("%-10s %12s   %9s %9s %9s   %9s %9s %9s %11s%n", "variant", "ops/s",
+                "read p50", "p99", "p99.9", "write p50", "p99", "p99.9", "write max")
+                + "(latency in us; write max is the longest a writer was held up)";
+    }
+
+    private static void pause(long nanos) {
+        if (nanos > 0) LockSupport.parkNanos(nanos);
+    }
+
+    // Nearest-rank percentile of sorted latencies, in microseconds
+    private static double micros(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1000.0;
+    }
+}
 
 class ReaderWriter {
 
-    // Semaphore to control access to the shared resource
-    static Semaphore mutex = new Semaphore(1);       // For reader count update
-    static Semaphore writeLock = new Semaphore(1);   // For writers
-    static int readerCount = 0;
+    // Lock protecting the shared resource (see newLock for the variants)
+    static RwLock lock = new SemaphoreRwLock();
+
+    static RwLock newLock(String name) {
+        switch (name.toLowerCase()) {
+            case "semaphore": return new SemaphoreRwLock();
+            case "fair": return new FairRwLock();
+            case "jdk": return new JdkRwLock();
+            case "stamped": return new StampedRwLock();
+            case "striped": return new StripedRwLock();
+            default: throw new IllegalArgumentException("Unknown lock: " + name);
+        }
+    }
 
     // Reader thread
     static class Reader extends Thread {
@@ -18,25 +602,17 @@ class ReaderWriter {
         public void run() {
             try {
                 // Entry section
-                mutex.acquire();
-                readerCount++;
-                if (readerCount == 1) {
-                    writeLock.acquire(); // First reader locks writers
-                }
-                mutex.release();
+                long stamp = lock.readLock();
 
                 // Critical section
                 System.out.println("Reader " + readerId + " is reading.");
 
-                Thread.sleep(1000); // Simulate reading time
-
-                // Exit section
-                mutex.acquire();
-                readerCount--;
-                if (readerCount == 0) {
-                    writeLock.release(); // Last reader releases writer lock
+                try {
+                    Thread.sleep(1000); // Simulate reading time
+                } finally {
+                    // Exit section
+                    lock.readUnlock(stamp);
                 }
-                mutex.release();
 
                 System.out.println("Reader " + readerId + " has finished reading.");
             } catch (InterruptedException e) {
@@ -56,24 +632,77 @@ class ReaderWriter {
         public void run() {
             try {
                 // Entry section
-                writeLock.acquire();
+                long stamp = lock.writeLock();
 
                 // Critical section
                 System.out.println("Writer " + writerId + " is writing.");
 
-                Thread.sleep(1500); // Simulate writing time
+                try {
+                    Thread.sleep(1500); // Simulate writing time
 
-                // Exit section
-                System.out.println("Writer " + writerId + " has finished writing.");
-                writeLock.release();
+                    // Exit section
+                    System.out.println("Writer " + writerId + " has finished writing.");
+                } finally {
+                    lock.writeUnlock(stamp);
+                }
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
         }
     }
 
+    static final String[] LOCKS = {"semaphore", "fair", "jdk", "stamped", "striped"};
+    static final String[] MAPS = {"semaphore", "stamped", "striped", "cow", "mvcc"};
+
+    // "cow" and "mvcc" are lock-free for readers; any lock name gives a
+    // HashMap guarded by that lock
+    static SharedMap newMap(String name) {
+        switch (name.toLowerCase()) {
+            case "cow": return new CopyOnWriteMap();
+            case "mvcc": return new MvccMap();
+            default: return new LockedMap(newLock(name));
+        }
+    }
+
     // Main function
-    public static void main(String[] args) {
+    // Usage: java ReaderWriter [semaphore|fair|jdk|stamped|striped]
+    //        java ReaderWriter --load [locks|all] [operations] [writeRatio] [thinkMicros] [criticalMicros] [threads]
+    //        java ReaderWriter --map [maps|all] [operations] [writeRatio] [thinkMicros] [keys] [threads]
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("--map")) {
+            String[] maps = (args.length > 1 && !args[1].equals("all")) ? args[1].split(",") : MAPS;
+            RwLoadHarness harness = new RwLoadHarness();
+            if (args.length > 2) harness.operations = Integer.parseInt(args[2]);
+            if (args.length > 3) harness.writeRatio = Double.parseDouble(args[3]);
+            if (args.length > 4) harness.thinkNanos = Long.parseLong(args[4]) * 1000;
+            int keys = (args.length > 5) ? Integer.parseInt(args[5]) : 1024;
+            if (args.length > 6) harness.threads = Integer.parseInt(args[6]);
+
+            System.out.println(harness.header(keys + " keys"));
+            for (String name : maps) {
+                System.out.println(harness.run(name, newMap(name), keys));
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--load")) {
+            String[] locks = (args.length > 1 && !args[1].equals("all")) ? args[1].split(",") : LOCKS;
+            RwLoadHarness harness = new RwLoadHarness();
+            if (args.length > 2) harness.operations = Integer.parseInt(args[2]);
+            if (args.length > 3) harness.writeRatio = Double.parseDouble(args[3]);
+            if (args.length > 4) harness.thinkNanos = Long.parseLong(args[4]) * 1000;
+            if (args.length > 5) harness.criticalNanos = Long.parseLong(args[5]) * 1000;
+            if (args.length > 6) harness.threads = Integer.parseInt(args[6]);
+
+            System.out.println(harness.header("critical section " + harness.criticalNanos / 1000 + " us"));
+            for (String name : locks) {
+                System.out.println(harness.run(name, newLock(name)));
+            }
+            return;
+        }
+
+        if (args.length > 0) lock = newLock(args[0]);
+
         // Create multiple readers and writers
         Reader r1 = new Reader(1);
         Reader r2 = new Reader(2);
@@ -1,4 +1,15 @@
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class TwoPassAssembler {
 
@@ -25,11 +36,72 @@ public class TwoPassAssembler {
         }
     }
 
-    static List<String> intermediateCode = new ArrayList<>();
-    static Map<String, Integer> symbolTable = new LinkedHashMap<>();
-    static int locationCounter = 0;
+    // State of one string-based assembly; use one instance per assembly
+    List<String> intermediateCode = new ArrayList<>();
+    Map<String, Integer> symbolTable = new LinkedHashMap<>();
+    int locationCounter = 0;
+
+    // Usage: java TwoPassAssembler            (interactive, prints all tables)
+    //        java TwoPassAssembler file.asm   (prints the machine code only)
+    //        java TwoPassAssembler --one-pass file.asm
+    //        java TwoPassAssembler -b out.obj file.asm  (binary object file, no listing)
+    //        java TwoPassAssembler --link [-j threads] [-o origin] [-c cacheDir] [-b out.obj] a.asm b.obj ...
+    //        java TwoPassAssembler --load [-o origin] file.obj  (loads and prints the listing)
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--link")) {
+            int threads = Runtime.getRuntime().availableProcessors(), origin = -1, i = 1;
+            ModuleCache cache = null;
+            Path object = null;
+            for (; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+                if (args[i].equals("-j")) threads = Integer.parseInt(args[i + 1]);
+                else if (args[i].equals("-o")) origin = Integer.parseInt(args[i + 1]);
+                else if (args[i].equals("-c")) cache = new ModuleCache(Paths.get(args[i + 1]));
+                else if (args[i].equals("-b")) object = Paths.get(args[i + 1]);
+                else throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+            List<Path> files = new ArrayList<>();
+            for (; i < args.length; i++) files.add(Paths.get(args[i]));
+            Linker linker = assembleModules(files, origin, threads, cache);
+            if (object != null) ObjectFile.write(object, linker.program());
+            else linker.write(System.out);
+            System.out.flush();
+            if (cache != null) System.err.println(cache.stats());
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--load")) {
+            int origin = -1, i = 1;
+            if (args.length > 3 && args[1].equals("-o")) {
+                origin = Integer.parseInt(args[2]);
+                i = 3;
+            }
+            Path file = Paths.get(args[i]);
+            ObjectModule module = ObjectFile.open(file).module(file.getFileName().toString());
+            new Linker(List.of(module), (origin >= 0) ? origin : module.origin).write(System.out);
+            System.out.flush();
+            return;
+        }
+        if (args.length > 2 && args[0].equals("-b")) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[2]))) {
+                passTwo(passOneTyped(reader.lines()::iterator), Paths.get(args[1]));
+            }
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--one-pass")) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[1]))) {
+                assembleOnePass(reader.lines()::iterator, System.out);
+            }
+            System.out.flush();
+            return;
+        }
+        if (args.length > 0) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[0]))) {
+                IntermediateCode ic = passOneTyped(reader.lines()::iterator);
+                passTwo(ic, System.out);
+            }
+            System.out.flush();
+            return;
+        }
 
-    public static void main(String[] args) {
         Scanner sc = new Scanner(System.in);
         System.out.println("Enter assembly code line by line.");
         System.out.println("Type END to finish input.\n");
@@ -45,25 +117,142 @@ public class TwoPassAssembler {
         }
 
         // Run Pass I
-        passOne(sourceCode);
+        IntermediateCode ic = passOneTyped(sourceCode);
 
         // Output symbol table and intermediate code
         System.out.println("\n--- Symbol Table ---");
-        for (Map.Entry<String, Integer> entry : symbolTable.entrySet()) {
+        for (Map.Entry<String, Integer> entry : ic.symbolTable().entrySet()) {
             System.out.println(entry.getKey() + " = " + entry.getValue());
         }
 
         System.out.println("\n--- Intermediate Code ---");
-        for (String line : intermediateCode) {
-            System.out.println(line);
+        for (int i = 0; i < ic.size; i++) {
+            System.out.println(ic.text(i));
         }
 
         // Run Pass II
         System.out.println("\n--- Machine Code ---");
-        passTwo(intermediateCode, symbolTable);
+        passTwo(ic, System.out);
+        System.out.flush();
     }
 
-    public static void passOne(List<String> sourceCode) {
+    // Pass I into the typed intermediate code; reading stops after END
+    public static IntermediateCode passOneTyped(Iterable<String> sourceCode) {
+        IntermediateCode ic = new IntermediateCode();
+        TypedPassOne pass = new TypedPassOne(ic);
+        for (String line : sourceCode) {
+            if (!pass.line(line)) break;
+        }
+        return ic;
+    }
+
+    // Assembles each file as a linkable module, in parallel on the given
+    // number of threads, and links them in argument order. origin < 0 loads
+    // the program at the first module's START address.
+    public static Linker assembleModules(List<Path> files, int origin, int threads) throws IOException {
+        return assembleModules(files, origin, threads, null);
+    }
+
+    // As above; with a cache, modules whose source is unchanged are loaded
+    // from it instead of being assembled
+    public static Linker assembleModules(List<Path> files, int origin, int threads, ModuleCache cache)
+            throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<ObjectModule>> tasks = new ArrayList<>();
+            for (Path file : files) {
+                tasks.add(pool.submit(() -> (cache != null && !isObjectFile(file)) ? cache.module(file) : assembleModule(file)));
+            }
+            List<ObjectModule> modules = new ArrayList<>();
+            for (ForkJoinTask<ObjectModule> task : tasks) {
+                try {
+                    modules.add(task.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) throw (IOException) cause;
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    throw new IllegalStateException(cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while assembling");
+                }
+            }
+            int load = (origin >= 0 || modules.isEmpty()) ? Math.max(origin, 0) : modules.get(0).origin;
+            return new Linker(modules, load);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Object files (*.obj) are loaded rather than assembled
+    static ObjectModule assembleModule(Path file) throws IOException {
+        if (isObjectFile(file)) return ObjectFile.open(file).module(file.getFileName().toString());
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            return assembleModule(file.getFileName().toString(), reader);
+        }
+    }
+
+    static boolean isObjectFile(Path file) {
+        return file.getFileName().toString().endsWith(".obj");
+    }
+
+    static ObjectModule assembleModule(String name, BufferedReader reader) throws IOException {
+        IntermediateCode ic = new IntermediateCode();
+        TypedPassOne pass = new TypedPassOne(ic, true);
+        String line;
+        while ((line = reader.readLine()) != null && pass.line(line)) { }
+        return ObjectModule.of(name, ic);
+    }
+
+    // Assembles in a single pass with backpatching (see OnePassAssembler)
+    public static void assembleOnePass(Iterable<String> sourceCode, OutputStream out) throws IOException {
+        try (OnePassAssembler assembler = new OnePassAssembler(out)) {
+            for (String line : sourceCode) {
+                if (!assembler.line(line)) break;
+            }
+            assembler.finish();
+        }
+    }
+
+    // Pass II over the typed intermediate code: same output as passTwo,
+    // without re-parsing any text
+    public static void passTwo(IntermediateCode ic, OutputStream out) throws IOException {
+        NameTable names = ic.names;
+        MachineCodeWriter writer = new MachineCodeWriter(out);
+        for (int i = 0; i < ic.size; i++) {
+            switch (ic.kind(i)) {
+                case IntermediateCode.DL:
+                    writer.separator();
+                    break;
+                case IntermediateCode.IS: {
+                    int operand = ic.b(i);
+                    writer.instruction(names.opcode[ic.a(i)], (operand < 0) ? 0 : names.resolve(operand));
+                    break;
+                }
+                case IntermediateCode.IS_RAW: {
+                    String[] parts = ic.rawFields(i);
+                    String mnemonic = parts[1];
+                    String operand = (parts.length > 2) ? parts[2] : "";
+                    int address = operand.isEmpty() ? 0 : names.resolve(names.id(operand));
+                    writer.instruction(opcodeTable.getOrDefault(mnemonic, -1), address);
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+        writer.flush();
+    }
+
+    // Pass II into a binary object file instead of the listing; every label
+    // goes into its symbol table
+    public static void passTwo(IntermediateCode ic, Path objectFile) throws IOException {
+        ObjectModule module = ObjectModule.of(objectFile.getFileName().toString(), ic);
+        ObjectFile.write(objectFile, new ObjectModule(module.name, module.origin, module.length,
+                module.text, module.lines, ic.symbolTable(), module.externals));
+    }
+
+    public void passOne(List<String> sourceCode) {
         for (String line : sourceCode) {
             String[] parts = line.trim().split("\\s+");
             if (parts.length == 0 || parts[0].isEmpty()) continue;
@@ -105,7 +294,7 @@ public class TwoPassAssembler {
         }
     }
 
-    public static void passTwo(List<String> ic, Map<String, Integer> symTable) {
+    public void passTwo(List<String> ic, Map<String, Integer> symTable) {
         for (String line : ic) {
             if (line.startsWith("(AD")) {
                 continue;
@@ -151,3 +340,1037 @@ START 100
 > D DC 4
 > END
 */
+
+// Buffered ASCII writer for machine code lines, formatted exactly like
+// printf("%02d %03d\n") and println("----") without a Formatter per line
+class MachineCodeWriter {
+    private static final byte[] SEPARATOR = ("----" + System.lineSeparator()).getBytes();
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position = 0;
+
+    MachineCodeWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    void instruction(int opcode, int address) throws IOException {
+        if (position + 32 > buffer.length) drain();
+        padded(opcode, 2);
+        buffer[position++] = ' ';
+        padded(address, 3);
+        buffer[position++] = '\n';
+    }
+
+    void separator() throws IOException {
+        if (position + SEPARATOR.length > buffer.length) drain();
+        System.arraycopy(SEPARATOR, 0, buffer, position, SEPARATOR.length);
+        position += SEPARATOR.length;
+    }
+
+    // Zero-padded to width, sign first, as %0<width>d does
+    private void padded(int value, int width) {
+        long magnitude = Math.abs((long) value);
+        int digits = 1;
+        for (long m = magnitude; m >= 10; m /= 10) digits++;
+        if (value < 0) {
+            buffer[position++] = '-';
+            width--;
+        }
+        for (int i = digits; i < width; i++) buffer[position++] = '0';
+        position += digits;
+        for (int i = 1; i <= digits; i++) {
+            buffer[position - i] = (byte) ('0' + magnitude % 10);
+            magnitude /= 10;
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+}
+
+// Pool of every distinct opcode, label and operand string, hash-indexed by
+// character range so a name that was seen before costs no allocation. Each
+// name carries what Pass II needs: its opcode number, whether it is a
+// defined symbol (and its address), and its value as a numeric literal.
+class NameTable {
+    private int[] slots = new int[1024]; // open addressing: name id + 1, 0 = empty
+    private int[] hashes = new int[512];
+    String[] names = new String[512];
+    int[] opcode = new int[512];
+    int[] literal = new int[512];
+    int[] address = new int[512];
+    boolean[] defined = new boolean[512];
+    boolean[] numeric = new boolean[512]; // parses as an int
+    int size = 0;
+
+    // Called after a symbol is (re)defined, with whether it already was
+    DefineListener listener;
+
+    interface DefineListener {
+        void defined(int id, boolean redefinition);
+    }
+
+    // Symbol ids in order of first definition, like the LinkedHashMap
+    int[] definitionOrder = new int[64];
+    int definitions = 0;
+
+    int id(CharSequence s, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) h = 31 * h + s.charAt(i);
+        int mask = slots.length - 1;
+        for (int i = (h ^ (h >>> 16)) & mask; ; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (id < 0) {
+                id = add(s.subSequence(from, to).toString(), h);
+                slots[i] = id + 1;
+                if (2 * size > slots.length) rehash();
+                return id;
+            }
+            if (hashes[id] == h && sameChars(names[id], s, from, to)) return id;
+        }
+    }
+
+    int id(String s) {
+        return id(s, 0, s.length());
+    }
+
+    private static boolean sameChars(String name, CharSequence s, int from, int to) {
+        if (name.length() != to - from) return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != s.charAt(from + i)) return false;
+        }
+        return true;
+    }
+
+    private int add(String name, int hash) {
+        if (size == names.length) {
+            int n = 2 * size;
+            hashes = Arrays.copyOf(hashes, n);
+            names = Arrays.copyOf(names, n);
+            opcode = Arrays.copyOf(opcode, n);
+            literal = Arrays.copyOf(literal, n);
+            address = Arrays.copyOf(address, n);
+            defined = Arrays.copyOf(defined, n);
+            numeric = Arrays.copyOf(numeric, n);
+        }
+        hashes[size] = hash;
+        names[size] = name;
+        opcode[size] = TwoPassAssembler.opcodeTable.getOrDefault(name, -1);
+        long value = parseInt(name);
+        numeric[size] = value != NOT_AN_INT;
+        literal[size] = numeric[size] ? (int) value : 0;
+        return size++;
+    }
+
+    private void rehash() {
+        slots = new int[2 * slots.length];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int h = hashes[id];
+            int i = (h ^ (h >>> 16)) & mask;
+            while (slots[i] != 0) i = (i + 1) & mask;
+            slots[i] = id + 1;
+        }
+    }
+
+    void define(int id, int location) {
+        boolean redefinition = defined[id];
+        if (!redefinition) {
+            if (definitions == definitionOrder.length) {
+                definitionOrder = Arrays.copyOf(definitionOrder, 2 * definitions);
+            }
+            definitionOrder[definitions++] = id;
+            defined[id] = true;
+        }
+        address[id] = location; // later definitions win, as with Map.put
+        if (listener != null) listener.defined(id, redefinition);
+    }
+
+    // Operand value in Pass II: a symbol's address, else the number, else 0
+    int resolve(int id) {
+        return defined[id] ? address[id] : literal[id];
+    }
+
+    static final long NOT_AN_INT = Long.MIN_VALUE;
+
+    // Integer.parseInt without the exception: NOT_AN_INT where it would throw
+    static long parseInt(String s) {
+        int n = s.length(), i = 0;
+        if (n == 0) return NOT_AN_INT;
+        boolean negative = false;
+        char first = s.charAt(0);
+        if (first == '-' || first == '+') {
+            if (n == 1) return NOT_AN_INT;
+            negative = first == '-';
+            i = 1;
+        }
+        long value = 0;
+        for (; i < n; i++) {
+            int digit = Character.digit(s.charAt(i), 10);
+            if (digit < 0) return NOT_AN_INT;
+            value = value * 10 + digit;
+            if (value > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE)) return NOT_AN_INT;
+        }
+        return negative ? -value : value;
+    }
+}
+
+// Typed intermediate code: three ints per statement (kind, a, b) instead of
+// a string that Pass II has to parse again.
+//   AD_START  a = operand name     AD_END  (no fields)
+//   DL        a = DC/DS name, b = operand name
+//   IS        a = mnemonic name, b = operand name or -1
+//   IS_RAW    as IS, for mnemonics or operands containing '(', ')' or ','
+//             (or the empty mnemonic of an over-long line); Pass II runs
+//             these through the string parsing of passTwo to match it exactly
+class IntermediateCode {
+    static final int AD_START = 0, AD_END = 1, DL = 2, IS = 3, IS_RAW = 4;
+
+    final NameTable names = new NameTable();
+    int[] records = new int[3 * 256];
+    int size = 0;
+    int locationCounter = 0;
+    boolean ended = false;
+
+    // Linkable modules only: first START address and the ENTRY / EXTRN names
+    int origin = 0;
+    boolean started = false;
+    final List<Integer> entries = new ArrayList<>();
+    final List<Integer> externals = new ArrayList<>();
+
+    void add(int kind, int a, int b) {
+        if (3 * size == records.length) records = Arrays.copyOf(records, 2 * records.length);
+        records[3 * size] = kind;
+        records[3 * size + 1] = a;
+        records[3 * size + 2] = b;
+        size++;
+    }
+
+    int kind(int i) { return records[3 * i]; }
+    int a(int i) { return records[3 * i + 1]; }
+    int b(int i) { return records[3 * i + 2]; }
+
+    // The statement as passOne would have written it
+    String text(int i) {
+        String[] n = names.names;
+        switch (kind(i)) {
+            case AD_START: return "(AD,START) " + n[a(i)];
+            case AD_END: return "(AD,END)";
+            case DL: return "(DL," + n[a(i)] + ") " + n[b(i)];
+            default: return "(IS," + n[a(i)] + ")" + (b(i) < 0 ? "" : " " + n[b(i)]);
+        }
+    }
+
+    // The statement split the way passTwo splits its text: [IS, mnemonic, operand?]
+    String[] rawFields(int i) {
+        return text(i).replace("(", "").replace(")", "").split("[,\\s]+");
+    }
+
+    Map<String, Integer> symbolTable() {
+        Map<String, Integer> table = new LinkedHashMap<>();
+        for (int k = 0; k < names.definitions; k++) {
+            int id = names.definitionOrder[k];
+            table.put(names.names[id], names.address[id]);
+        }
+        return table;
+    }
+}
+
+// Pass I over the typed representation. Lines are tokenized once, by hand:
+// trimmed like String.trim and split on the characters \s matches, as
+// passOne does with split("\\s+").
+class TypedPassOne {
+    private final IntermediateCode ic;
+    private final boolean linkable;
+    private final int[] starts = new int[3], ends = new int[3];
+    private final int startId, endId, dcId, dsId, emptyId, entryId, extrnId;
+
+    TypedPassOne(IntermediateCode ic) {
+        this(ic, false);
+    }
+
+    // A linkable module also accepts "ENTRY a,b" (symbols other modules may
+    // use) and "EXTRN c,d" (symbols defined elsewhere). Neither takes space.
+    // Without linkable they are ordinary mnemonics, as in passOne.
+    TypedPassOne(IntermediateCode ic, boolean linkable) {
+        this.ic = ic;
+        this.linkable = linkable;
+        NameTable names = ic.names;
+        startId = names.id("START");
+        endId = names.id("END");
+        dcId = names.id("DC");
+        dsId = names.id("DS");
+        emptyId = names.id("");
+        entryId = names.id("ENTRY");
+        extrnId = names.id("EXTRN");
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // Returns false once END has been seen
+    boolean line(String line) {
+        if (ic.ended) return false;
+        int from = 0, to = line.length();
+        while (from < to && line.charAt(from) <= ' ') from++;
+        while (to > from && line.charAt(to - 1) <= ' ') to--;
+        if (from == to) return true;
+
+        int tokens = 0;
+        for (int i = from; i < to; ) {
+            int start = i;
+            while (i < to && !isSpace(line.charAt(i))) i++;
+            if (tokens < 3) {
+                starts[tokens] = start;
+                ends[tokens] = i;
+            }
+            tokens++;
+            while (i < to && isSpace(line.charAt(i))) i++;
+        }
+
+        NameTable names = ic.names;
+        int label = emptyId, opcode = emptyId, operand = emptyId;
+        if (tokens == 1) {
+            opcode = names.id(line, starts[0], ends[0]);
+        } else if (tokens == 2) {
+            opcode = names.id(line, starts[0], ends[0]);
+            operand = names.id(line, starts[1], ends[1]);
+        } else if (tokens == 3) {
+            label = names.id(line, starts[0], ends[0]);
+            opcode = names.id(line, starts[1], ends[1]);
+            operand = names.id(line, starts[2], ends[2]);
+        }
+        statement(label, opcode, operand);
+        return !ic.ended;
+    }
+
+    private void statement(int label, int opcode, int operand) {
+        String[] n = ic.names.names;
+        if (opcode == startId) {
+            ic.locationCounter = Integer.parseInt(n[operand]);
+            if (!ic.started) ic.origin = ic.locationCounter;
+            ic.started = true;
+            ic.add(IntermediateCode.AD_START, operand, -1);
+        } else if (linkable && (opcode == entryId || opcode == extrnId)) {
+            List<Integer> list = (opcode == entryId) ? ic.entries : ic.externals;
+            for (String name : n[operand].split(",")) {
+                if (!name.isEmpty()) list.add(ic.names.id(name));
+            }
+        } else if (opcode == endId) {
+            ic.add(IntermediateCode.AD_END, -1, -1);
+            ic.ended = true;
+        } else if (opcode == dcId || opcode == dsId) {
+            ic.names.define(label, ic.locationCounter);
+            ic.add(IntermediateCode.DL, opcode, operand);
+            ic.locationCounter += Integer.parseInt(n[operand]);
+        } else {
+            if (label != emptyId) {
+                ic.names.define(label, ic.locationCounter);
+            }
+            boolean raw = opcode == emptyId || needsRaw(n[opcode]) || needsRaw(n[operand]);
+            ic.add(raw ? IntermediateCode.IS_RAW : IntermediateCode.IS, opcode, operand == emptyId ? -1 : operand);
+            ic.locationCounter++;
+        }
+    }
+
+    private static boolean needsRaw(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '(' || c == ')' || c == ',') return true;
+        }
+        return false;
+    }
+}
+
+// One-pass assembly: machine code is produced while the source is read.
+// A reference to a symbol that is not defined yet leaves its line pending,
+// with the line's address field holding the symbol's previous pending line,
+// so each symbol's pending lines form a fix-up chain. Defining the label
+// walks the chain and backpatches the waiting lines. Lines are written in
+// order as soon as everything before them is resolved.
+//
+// Lines held back by an unresolved reference sit in a fixed-size window.
+// When it fills, its oldest lines move to a temporary file of fixed-width
+// records, where backpatching still finds them by sequence number. Memory
+// is the name table, a chain head per name and the window, however long
+// the program and wherever its forward references point.
+//
+// The output matches passTwo byte for byte, with one limit: passTwo gives
+// every reference a symbol's last definition, which a single pass cannot
+// know. Redefining a label that has already been referenced at a different
+// address (or defining a numeric name already used as a literal) throws
+// IllegalStateException rather than producing different output. Operands
+// that are never defined resolve at END, as numbers or 0.
+class OnePassAssembler implements Closeable {
+    private static final byte RESOLVED = 0, PENDING = 1, SEPARATOR = 2;
+    private static final long NONE = -1;
+    private static final int RECORD_BYTES = 13; // kind (i8), opcode (i32), address or chain link (i64)
+
+    private final IntermediateCode ic = new IntermediateCode(); // holds one line's records at a time
+    private final TypedPassOne pass = new TypedPassOne(ic);
+    private final NameTable names = ic.names;
+    private final MachineCodeWriter writer;
+
+    // Lines head..tail-1 are not written yet. Those before 'spilled' are in
+    // the spill file (line seq at RECORD_BYTES * (seq - spillBase)), the rest
+    // in the window (slot = seq & mask).
+    private final byte[] kind;
+    private final int[] opcode;
+    private final long[] value;
+    private final int mask;
+    private long head = 0, tail = 0, spilled = 0, spillBase = 0;
+    private FileChannel spill;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer spillBuffer;
+    private long readStart, readEnd; // lines cached in spillBuffer while writing from the file
+
+    // Per name: newest pending line, whether it was ever referenced, and the
+    // value already written for it if references were resolved
+    private long[] chain = new long[0];
+    private boolean[] referenced = new boolean[0];
+    private int[] resolvedAs = new int[0];
+
+    OnePassAssembler(OutputStream out) {
+        this(out, 1 << 16);
+    }
+
+    // window: lines kept in memory, rounded up to a power of two
+    OnePassAssembler(OutputStream out, int window) {
+        int size = Integer.highestOneBit(Math.max(2, window) * 2 - 1);
+        this.writer = new MachineCodeWriter(out);
+        kind = new byte[size];
+        opcode = new int[size];
+        value = new long[size];
+        mask = size - 1;
+        spillBuffer = ByteBuffer.allocateDirect(RECORD_BYTES * (size / 2)).order(ByteOrder.LITTLE_ENDIAN);
+        names.listener = this::defined;
+    }
+
+    // Returns false once END has been seen
+    boolean line(String line) throws IOException {
+        boolean more;
+        try {
+            more = pass.line(line);
+            for (int i = 0; i < ic.size; i++) {
+                switch (ic.kind(i)) {
+                    case IntermediateCode.DL:
+                        append(SEPARATOR, 0, 0);
+                        break;
+                    case IntermediateCode.IS:
+                        reference(names.opcode[ic.a(i)], ic.b(i));
+                        break;
+                    case IntermediateCode.IS_RAW: {
+                        String[] parts = ic.rawFields(i);
+                        int operand = (parts.length > 2) ? names.id(parts[2]) : -1;
+                        reference(TwoPassAssembler.opcodeTable.getOrDefault(parts[1], -1), operand);
+                        break;
+                    }
+                    default:
+                        break;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // from a backpatch run by the define listener
+        }
+        ic.size = 0;
+        flush();
+        return more;
+    }
+
+    // Resolves what is left the way passTwo treats undefined operands
+    void finish() throws IOException {
+        for (int id = 0; id < chain.length; id++) {
+            for (long seq = chain[id]; seq != NONE; ) seq = patch(seq, names.literal[id]);
+            chain[id] = NONE;
+        }
+        flush();
+        writer.flush();
+    }
+
+    // Deletes the spill file; the output stream stays open
+    @Override
+    public void close() throws IOException {
+        if (spill != null) spill.close();
+    }
+
+    private void reference(int op, int id) throws IOException {
+        if (id < 0) {
+            append(RESOLVED, op, 0);
+            return;
+        }
+        ensureNames();
+        referenced[id] = true;
+        if (names.defined[id] || names.numeric[id]) {
+            resolvedAs[id] = names.resolve(id);
+            append(RESOLVED, op, resolvedAs[id]);
+        } else {
+            append(PENDING, op, chain[id]);
+            chain[id] = tail - 1;
+        }
+    }
+
+    private void defined(int id, boolean redefinition) {
+        ensureNames();
+        if (!referenced[id]) return;
+        if (chain[id] == NONE) {
+            if (names.address[id] == resolvedAs[id]) return;
+            throw new IllegalStateException("Symbol " + names.names[id]
+                    + " defined after references were resolved; use the two-pass assembler");
+        }
+        // Backpatch every line waiting on this symbol
+        try {
+            for (long seq = chain[id]; seq != NONE; ) seq = patch(seq, names.address[id]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        chain[id] = NONE;
+    }
+
+    private void ensureNames() {
+        if (chain.length < names.size) {
+            int old = chain.length, n = Math.max(names.size, 2 * old);
+            chain = Arrays.copyOf(chain, n);
+            Arrays.fill(chain, old, n, NONE);
+            referenced = Arrays.copyOf(referenced, n);
+            resolvedAs = Arrays.copyOf(resolvedAs, n);
+        }
+    }
+
+    private void append(byte k, int op, long v) throws IOException {
+        if (tail - Math.max(head, spilled) == kind.length) spillOldest();
+        int slot = (int) (tail & mask);
+        kind[slot] = k;
+        opcode[slot] = op;
+        value[slot] = v;
+        tail++;
+    }
+
+    // Moves the older half of a full window to the spill file
+    private void spillOldest() throws IOException {
+        if (head >= spilled) {
+            // Everything spilled before has been written: start the file over
+            spilled = spillBase = head;
+            if (spill == null) {
+                Path file = Files.createTempFile("onepass", ".spill");
+                spill = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE);
+            } else {
+                spill.truncate(0);
+            }
+            readEnd = readStart;
+        }
+        spillBuffer.clear();
+        long from = spilled, to = spilled + kind.length / 2;
+        for (long seq = from; seq < to; seq++) {
+            int slot = (int) (seq & mask);
+            spillBuffer.put(kind[slot]).putInt(opcode[slot]).putLong(value[slot]);
+        }
+        spillBuffer.flip();
+        long at = RECORD_BYTES * (from - spillBase);
+        while (spillBuffer.hasRemaining()) at += spill.write(spillBuffer, at);
+        spilled = to;
+        readEnd = readStart; // the read cache shares spillBuffer
+    }
+
+    // Resolves line seq to address; returns the next line of its chain
+    private long patch(long seq, int address) throws IOException {
+        if (seq >= spilled) {
+            int slot = (int) (seq & mask);
+            long next = value[slot];
+            kind[slot] = RESOLVED;
+            value[slot] = address;
+            return next;
+        }
+        long at = RECORD_BYTES * (seq - spillBase);
+        read(at);
+        long next = record.getLong(5);
+        record.put(0, RESOLVED).putLong(5, address).clear();
+        while (record.hasRemaining()) spill.write(record, at + record.position());
+        readEnd = readStart;
+        return next;
+    }
+
+    private void read(long at) throws IOException {
+        record.clear();
+        while (record.hasRemaining()) {
+            if (spill.read(record, at + record.position()) < 0) throw new EOFException("Spill file truncated");
+        }
+    }
+
+    // Writes lines from head for as long as they are resolved
+    private void flush() throws IOException {
+        while (head < tail) {
+            byte k;
+            int op;
+            long v;
+            if (head < spilled) {
+                if (head < readStart || head >= readEnd) fill();
+                int at = RECORD_BYTES * (int) (head - readStart);
+                k = spillBuffer.get(at);
+                op = spillBuffer.getInt(at + 1);
+                v = spillBuffer.getLong(at + 5);
+            } else {
+                int slot = (int) (head & mask);
+                k = kind[slot];
+                op = opcode[slot];
+                v = value[slot];
+            }
+            if (k == PENDING) break;
+            if (k == SEPARATOR) writer.separator(); else writer.instruction(op, (int) v);
+            head++;
+        }
+    }
+
+    // Reads the spilled lines from head onward into spillBuffer
+    private void fill() throws IOException {
+        long count = Math.min(spilled - head, spillBuffer.capacity() / RECORD_BYTES);
+        spillBuffer.clear().limit((int) (RECORD_BYTES * count));
+        long at = RECORD_BYTES * (head - spillBase);
+        while (spillBuffer.hasRemaining()) {
+            if (spill.read(spillBuffer, at + spillBuffer.position()) < 0) throw new EOFException("Spill file truncated");
+        }
+        readStart = head;
+        readEnd = head + count;
+    }
+}
+
+// Relocatable output of assembling one module. Text holds one record of
+// three ints per machine-code line (opcode, address field, fixup), with
+// addresses as assembled at the module's own origin. The fixup says how the
+// linker must adjust the address: ABSOLUTE (a number, left alone),
+// RELATIVE (a local label, moved with the module), SEPARATOR (a "----"
+// line for DC/DS) or, when >= 0, the index of an EXTRN symbol.
+class ObjectModule {
+    static final int ABSOLUTE = -1, RELATIVE = -2, SEPARATOR = -3;
+
+    final String name;
+    final int origin;
+    final int length;
+    final int[] text;
+    final int lines;
+    final Map<String, Integer> entries;   // ENTRY symbol -> address
+    final String[] externals;
+
+    ObjectModule(String name, int origin, int length, int[] text, int lines,
+                 Map<String, Integer> entries, String[] externals) {
+        this.name = name;
+        this.origin = origin;
+        this.length = length;
+        this.text = text;
+        this.lines = lines;
+        this.entries = entries;
+        this.externals = externals;
+    }
+
+    // Pass II for a linkable module: resolves local labels now and leaves
+    // the rest as fixups for the linker
+    static ObjectModule of(String name, IntermediateCode ic) {
+        NameTable names = ic.names;
+        Map<Integer, Integer> externalIndex = new HashMap<>();
+        String[] externals = new String[ic.externals.size()];
+        for (int id : ic.externals) {
+            if (names.defined[id]) {
+                throw new IllegalStateException(name + ": " + names.names[id] + " is both EXTRN and defined");
+            }
+            if (!externalIndex.containsKey(id)) {
+                externals[externalIndex.size()] = names.names[id];
+                externalIndex.put(id, externalIndex.size());
+            }
+        }
+        Map<String, Integer> entries = new LinkedHashMap<>();
+        for (int id : ic.entries) {
+            if (!names.defined[id]) {
+                throw new IllegalStateException(name + ": ENTRY " + names.names[id] + " is not defined");
+            }
+            entries.put(names.names[id], names.address[id]);
+        }
+
+        int[] text = new int[3 * ic.size];
+        int lines = 0;
+        for (int i = 0; i < ic.size; i++) {
+            int kind = ic.kind(i), opcode, operand;
+            if (kind == IntermediateCode.DL) {
+                text[3 * lines + 2] = SEPARATOR;
+                lines++;
+                continue;
+            } else if (kind == IntermediateCode.IS) {
+                opcode = names.opcode[ic.a(i)];
+                operand = ic.b(i);
+            } else if (kind == IntermediateCode.IS_RAW) {
+                String[] parts = ic.rawFields(i);
+                opcode = TwoPassAssembler.opcodeTable.getOrDefault(parts[1], -1);
+                operand = (parts.length > 2) ? names.id(parts[2]) : -1;
+            } else {
+                continue;
+            }
+
+            int address = 0, fixup = ABSOLUTE;
+            if (operand >= 0) {
+                Integer external = externalIndex.get(operand);
+                if (names.defined[operand]) {
+                    address = names.address[operand];
+                    fixup = RELATIVE;
+                } else if (external != null) {
+                    fixup = external;
+                } else {
+                    address = names.literal[operand];
+                }
+            }
+            text[3 * lines] = opcode;
+            text[3 * lines + 1] = address;
+            text[3 * lines + 2] = fixup;
+            lines++;
+        }
+        return new ObjectModule(name, ic.origin, ic.locationCounter - ic.origin,
+                Arrays.copyOf(text, 3 * lines), lines, entries, externals);
+    }
+}
+
+// Links object modules into one program: modules are laid out one after
+// another from the load address, ENTRY symbols are merged into a global
+// table, and every RELATIVE address is moved by its module's relocation
+// offset while EXTRN references get the global address.
+class Linker {
+    final Map<String, Integer> globals = new LinkedHashMap<>();
+    final List<ObjectModule> modules;
+    final int[] loadAddress;
+
+    Linker(List<ObjectModule> modules, int origin) {
+        this.modules = modules;
+        this.loadAddress = new int[modules.size()];
+        Map<String, String> definedIn = new HashMap<>();
+        int next = origin;
+        for (int m = 0; m < modules.size(); m++) {
+            ObjectModule module = modules.get(m);
+            loadAddress[m] = next;
+            next += module.length;
+            int offset = loadAddress[m] - module.origin;
+            for (Map.Entry<String, Integer> entry : module.entries.entrySet()) {
+                String previous = definedIn.putIfAbsent(entry.getKey(), module.name);
+                if (previous != null) {
+                    throw new IllegalStateException("Symbol " + entry.getKey() + " is an ENTRY of both "
+                            + previous + " and " + module.name);
+                }
+                globals.put(entry.getKey(), entry.getValue() + offset);
+            }
+        }
+        for (ObjectModule module : modules) {
+            for (String external : module.externals) {
+                if (!globals.containsKey(external)) {
+                    throw new IllegalStateException(module.name + ": unresolved EXTRN " + external);
+                }
+            }
+        }
+    }
+
+    // The linked program as one module at the first load address, for
+    // ObjectFile: EXTRN references become relocatable addresses inside it
+    // and the global symbols become its symbol table
+    ObjectModule program() {
+        int lines = 0, length = 0;
+        for (ObjectModule module : modules) {
+            lines += module.lines;
+            length += module.length;
+        }
+        int[] text = new int[3 * lines];
+        int at = 0;
+        for (int m = 0; m < modules.size(); m++) {
+            ObjectModule module = modules.get(m);
+            int offset = loadAddress[m] - module.origin;
+            int[] source = module.text;
+            for (int i = 0; i < module.lines; i++, at += 3) {
+                int address = source[3 * i + 1], fixup = source[3 * i + 2];
+                if (fixup == ObjectModule.RELATIVE) {
+                    address += offset;
+                } else if (fixup >= 0) {
+                    address = globals.get(module.externals[fixup]);
+                    fixup = ObjectModule.RELATIVE;
+                }
+                text[at] = source[3 * i];
+                text[at + 1] = address;
+                text[at + 2] = fixup;
+            }
+        }
+        int origin = modules.isEmpty() ? 0 : loadAddress[0];
+        return new ObjectModule("a.out", origin, length, text, lines, new LinkedHashMap<>(globals), new String[0]);
+    }
+
+    // Writes the linked machine code in the passTwo listing format
+    void write(OutputStream out) throws IOException {
+        MachineCodeWriter writer = new MachineCodeWriter(out);
+        for (int m = 0; m < modules.size(); m++) {
+            ObjectModule module = modules.get(m);
+            int offset = loadAddress[m] - module.origin;
+            int[] externalAddress = new int[module.externals.length];
+            for (int e = 0; e < externalAddress.length; e++) externalAddress[e] = globals.get(module.externals[e]);
+
+            int[] text = module.text;
+            for (int i = 0; i < module.lines; i++) {
+                int fixup = text[3 * i + 2];
+                if (fixup == ObjectModule.SEPARATOR) {
+                    writer.separator();
+                    continue;
+                }
+                int address = text[3 * i + 1];
+                if (fixup == ObjectModule.RELATIVE) address += offset;
+                else if (fixup >= 0) address = externalAddress[fixup];
+                writer.instruction(text[3 * i], address);
+            }
+        }
+        writer.flush();
+    }
+}
+
+// Binary object file: what Pass II or the linker hands to a loader, without
+// formatting a line per instruction. Little-endian; the fixed-size sections
+// come first so the loader can index them straight out of the mapping:
+//   header      magic "SPOB", version, origin, length, record count,
+//               external reference count, symbol count, external count
+//   text        per record: opcode (i8, SEPARATOR for "----"), address (i32)
+//   relocation  one bit per record: set when its address is RELATIVE
+//   references  per EXTRN use: record index, index into the externals
+//   symbols     per symbol: address, then the name (u16 length + UTF-8)
+//   externals   per EXTRN: the name (u16 length + UTF-8)
+// A record is 5 bytes plus a relocation bit, against 7 for a listing line.
+class ObjectFile {
+    static final int MAGIC = 0x53504F42;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final byte SEPARATOR = Byte.MIN_VALUE;
+
+    private final ByteBuffer mapping;
+    final int origin, length, records, references;
+    final Map<String, Integer> symbols;
+    final String[] externals;
+
+    private ObjectFile(ByteBuffer mapping, int origin, int length, int records, int references,
+                       Map<String, Integer> symbols, String[] externals) {
+        this.mapping = mapping;
+        this.origin = origin;
+        this.length = length;
+        this.records = records;
+        this.references = references;
+        this.symbols = symbols;
+        this.externals = externals;
+    }
+
+    public static ObjectFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not an object file: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            ByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (mapping.getInt(0) != MAGIC) throw new IOException("Not an object file: " + path);
+            int version = mapping.getInt(4);
+            if (version != VERSION) throw new IOException("Unsupported object file version " + version);
+            int origin = mapping.getInt(8), length = mapping.getInt(12);
+            int records = mapping.getInt(16), references = mapping.getInt(20);
+            int symbolCount = mapping.getInt(24), externalCount = mapping.getInt(28);
+            if (records < 0 || references < 0 || symbolCount < 0 || externalCount < 0
+                    || stringsOffset(records, references) > mapping.capacity()) {
+                throw new IOException("Truncated object file: " + path);
+            }
+
+            try {
+                mapping.position((int) stringsOffset(records, references));
+                Map<String, Integer> symbols = new LinkedHashMap<>();
+                for (int k = 0; k < symbolCount; k++) {
+                    int address = mapping.getInt();
+                    symbols.put(name(mapping), address);
+                }
+                String[] externals = new String[externalCount];
+                for (int k = 0; k < externalCount; k++) externals[k] = name(mapping);
+                return new ObjectFile(mapping, origin, length, records, references, symbols, externals);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated object file: " + path, e);
+            }
+        }
+    }
+
+    private static long stringsOffset(long records, long references) {
+        return HEADER_BYTES + 5 * records + (records + 7) / 8 + 8 * references;
+    }
+
+    private int relocationOffset() {
+        return HEADER_BYTES + 5 * records;
+    }
+
+    private int referencesOffset() {
+        return relocationOffset() + (records + 7) / 8;
+    }
+
+    int opcode(int record) {
+        return mapping.get(HEADER_BYTES + 5 * record);
+    }
+
+    boolean isSeparator(int record) {
+        return mapping.get(HEADER_BYTES + 5 * record) == SEPARATOR;
+    }
+
+    int address(int record) {
+        return mapping.getInt(HEADER_BYTES + 5 * record + 1);
+    }
+
+    boolean isRelative(int record) {
+        return (mapping.get(relocationOffset() + (record >>> 3)) & (1 << (record & 7))) != 0;
+    }
+
+    // Back to the linker's form, so object files link like assembled sources
+    ObjectModule module(String name) throws IOException {
+        int[] text = new int[3 * records];
+        for (int i = 0; i < records; i++) {
+            if (isSeparator(i)) {
+                text[3 * i + 2] = ObjectModule.SEPARATOR;
+            } else {
+                text[3 * i] = opcode(i);
+                text[3 * i + 1] = address(i);
+                text[3 * i + 2] = isRelative(i) ? ObjectModule.RELATIVE : ObjectModule.ABSOLUTE;
+            }
+        }
+        for (int k = 0, at = referencesOffset(); k < references; k++, at += 8) {
+            int record = mapping.getInt(at), external = mapping.getInt(at + 4);
+            if (record < 0 || record >= records || text[3 * record + 2] != ObjectModule.ABSOLUTE
+                    || external < 0 || external >= externals.length) {
+                throw new IOException(name + ": bad external reference " + k);
+            }
+            text[3 * record + 2] = external;
+        }
+        return new ObjectModule(name, origin, length, text, records, symbols, externals);
+    }
+
+    public static void write(Path path, ObjectModule module) throws IOException {
+        int[] text = module.text;
+        int lines = module.lines, references = 0;
+        byte[] relocation = new byte[(lines + 7) / 8];
+        for (int i = 0; i < lines; i++) {
+            int opcode = text[3 * i], fixup = text[3 * i + 2];
+            if (fixup == ObjectModule.SEPARATOR) continue;
+            if (opcode != (byte) opcode || opcode == SEPARATOR) {
+                throw new IllegalArgumentException(module.name + ": opcode " + opcode + " has no object encoding");
+            }
+            if (fixup == ObjectModule.RELATIVE) relocation[i >>> 3] |= 1 << (i & 7);
+            else if (fixup >= 0) references++;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(module.origin).putInt(module.length)
+                    .putInt(lines).putInt(references)
+                    .putInt(module.entries.size()).putInt(module.externals.length);
+            for (int i = 0; i < lines; i++) {
+                if (buffer.remaining() < 5) drain(channel, buffer);
+                if (text[3 * i + 2] == ObjectModule.SEPARATOR) buffer.put(SEPARATOR).putInt(0);
+                else buffer.put((byte) text[3 * i]).putInt(text[3 * i + 1]);
+            }
+            for (int at = 0; at < relocation.length; ) {
+                if (!buffer.hasRemaining()) drain(channel, buffer);
+                int n = Math.min(buffer.remaining(), relocation.length - at);
+                buffer.put(relocation, at, n);
+                at += n;
+            }
+            for (int i = 0; i < lines; i++) {
+                if (text[3 * i + 2] < 0) continue;
+                if (buffer.remaining() < 8) drain(channel, buffer);
+                buffer.putInt(i).putInt(text[3 * i + 2]);
+            }
+            for (Map.Entry<String, Integer> entry : module.entries.entrySet()) {
+                if (buffer.remaining() < 4) drain(channel, buffer);
+                buffer.putInt(entry.getValue());
+                putName(channel, buffer, entry.getKey());
+            }
+            for (String external : module.externals) putName(channel, buffer, external);
+            drain(channel, buffer);
+        }
+    }
+
+    private static void putName(FileChannel channel, ByteBuffer buffer, String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) throw new IllegalArgumentException("Symbol name too long: " + name);
+        if (buffer.remaining() < 2 + bytes.length) drain(channel, buffer);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String name(ByteBuffer mapping) {
+        byte[] bytes = new byte[mapping.getShort() & 0xFFFF];
+        mapping.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
+
+// On-disk cache of assembled modules keyed by the SHA-256 of the source
+// bytes, so an edit-assemble loop only re-assembles the modules that
+// changed. Linking (relocation and EXTRN fix-ups) always runs again: it is
+// linear and is where a changed module's new addresses reach the others.
+// Entries are written to a temporary file and moved into place, so
+// concurrent assemblies never see a partial entry. There is no eviction.
+class ModuleCache {
+
+    private final Path dir;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    ModuleCache(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+    }
+
+    ObjectModule module(Path file) throws IOException {
+        byte[] source = Files.readAllBytes(file);
+        String name = file.getFileName().toString();
+        Path entry = dir.resolve(key(source) + ".obj");
+        if (Files.exists(entry)) {
+            try {
+                ObjectModule cached = ObjectFile.open(entry).module(name);
+                hits.incrementAndGet();
+                return cached;
+            } catch (IOException e) {
+                // Unreadable or stale entry: assemble again and overwrite it
+            }
+        }
+        misses.incrementAndGet();
+        ObjectModule module = TwoPassAssembler.assembleModule(name, new BufferedReader(
+                new StringReader(new String(source, StandardCharsets.UTF_8))));
+        write(entry, module);
+        return module;
+    }
+
+    String stats() {
+        return "module cache: " + hits.get() + " hits, " + misses.get() + " assembled";
+    }
+
+    private static String key(byte[] source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // The entry format is part of the key: changing it invalidates the cache
+            digest.update(ByteBuffer.allocate(8).putInt(ObjectFile.MAGIC).putInt(ObjectFile.VERSION).array());
+            byte[] hash = digest.digest(source);
+            StringBuilder hex = new StringBuilder(2 * hash.length);
+            for (byte b : hash) hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JDK has SHA-256
+        }
+    }
+
+    private void write(Path entry, ObjectModule module) throws IOException {
+        Path temp = Files.createTempFile(dir, "module", ".tmp");
+        ObjectFile.write(temp, module);
+        Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
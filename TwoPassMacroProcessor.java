@@ -1,3 +1,4 @@
+import java.io.PrintStream;
 import java.util.*;
 
 public class TwoPassMacroProcessor {
@@ -7,82 +8,234 @@ public class TwoPassMacroProcessor {
         Map<String, Integer> MNT = new HashMap<>();
         List<String> MDT = new ArrayList<>();
         List<String> intermediateCode = new ArrayList<>();
+        Map<String, MacroTemplate> templates = new HashMap<>();
+
+        // Guards against runaway expansion (without conditional assembly a
+        // recursive macro only stops here): a call nested more than maxDepth
+        // deep ends the expansion of the source call it came from, and one
+        // call in the source may expand to at most maxExpansionLines lines,
+        // error lines included
+        int maxDepth = 32;
+        long maxExpansionLines = 1_000_000;
+
+        // The definition being read, by pass1 or out of an expansion: MACRO
+        // lines nest, and it ends at the MEND matching its first MACRO
+        private int defDepth = 0;
+        private String defName = null;
+        private int definitions = 0;   // bumped by every new template
+
+        // The expansion stack: frames[0..top] are the calls being expanded
+        private Frame[] frames = new Frame[8];
+        private int top = -1;
+        private final StringBuilder bodyLine = new StringBuilder();
+        private final StringBuilder expansion = new StringBuilder(1 << 16);
+
+        MacroProcessor() {
+        }
+
+        MacroProcessor(int maxDepth, long maxExpansionLines) {
+            this.maxDepth = maxDepth;
+            this.maxExpansionLines = maxExpansionLines;
+        }
+
+        // A call being expanded: the argument k is call[bounds[2k], bounds[2k+1])
+        private static final class Frame {
+            MacroTemplate template;
+            String call;
+            int[] bounds = new int[16];
+            int line;
+        }
 
         // Pass 1: Build MNT and MDT
         public void pass1(List<String> inputLines) {
-            boolean inMacroDef = false;
-            String macroName = null;
-
             for (String line : inputLines) {
                 line = line.trim();
-                if (line.equalsIgnoreCase("MACRO")) {
-                    inMacroDef = true;
-                    continue;
-                }
-
-                if (inMacroDef) {
-                    if (macroName == null) {
-                        macroName = line.split(" ")[0];
-                        MNT.put(macroName, MDT.size());
-                    }
+                if (!define(line)) intermediateCode.add(line);
+            }
+            // A definition missing its MEND runs to the end of the MDT
+            endDefinition();
+        }
 
-                    MDT.add(line);
+        // Feeds a line to the definition being read; false if the line is
+        // not part of one
+        private boolean define(String line) {
+            if (defDepth == 0) {
+                if (!line.equalsIgnoreCase("MACRO")) return false;
+                defDepth = 1;
+                return true;
+            }
+            if (defName == null) {
+                if (line.equalsIgnoreCase("MACRO")) return true; // MACRO twice still opens one definition
+                defName = line.split(" ")[0];
+                MNT.put(defName, MDT.size());
+            } else if (line.equalsIgnoreCase("MACRO")) {
+                defDepth++;
+            }
+            MDT.add(line);
+            if (line.equalsIgnoreCase("MEND") && --defDepth == 0) endDefinition();
+            return true;
+        }
 
-                    if (line.equalsIgnoreCase("MEND")) {
-                        inMacroDef = false;
-                        macroName = null;
-                    }
-                } else {
-                    intermediateCode.add(line);
-                }
+        private void endDefinition() {
+            if (defName != null) {
+                templates.put(defName, MacroTemplate.compile(MDT, MNT.get(defName)));
+                definitions++;
             }
+            defDepth = 0;
+            defName = null;
         }
 
         // Pass 2: Expand macros
         public void pass2() {
-            System.out.println("\n--- Expanded Code (Pass 2 Output) ---");
+            pass2(System.out);
+        }
+
+        public void pass2(PrintStream out) {
+            out.println("\n--- Expanded Code (Pass 2 Output) ---");
 
             for (String line : intermediateCode) {
-                String[] tokens = line.split(" ");
-                if (MNT.containsKey(tokens[0])) {
-                    expandMacro(tokens);
+                int space = line.indexOf(' ');
+                MacroTemplate template = templates.get((space < 0) ? line : line.substring(0, space));
+                if (template != null) {
+                    expandMacro(template, line, space, out);
                 } else {
-                    System.out.println(line);
+                    expansion.append(line).append(MacroTemplate.NEWLINE);
                 }
+                if (expansion.length() >= 1 << 16) drain(out);
             }
+            drain(out);
         }
 
-        // Macro expansion logic
-        private void expandMacro(String[] callTokens) {
-            String macroName = callTokens[0];
-            int mdtIndex = MNT.get(macroName);
+        private void drain(PrintStream out) {
+            out.append(expansion);
+            expansion.setLength(0);
+        }
 
-            // Get macro definition line (with parameters)
-            String defLine = MDT.get(mdtIndex);
-            String[] defParts = defLine.split(" ");
-            if (defParts.length < 2) {
-                System.out.println("// Error: No parameters found for macro " + macroName);
-                return;
+        // Macro expansion logic. Calls inside a body go on the frame stack
+        // rather than the Java stack, and definitions inside a body are
+        // defined when the body is expanded, with its arguments substituted.
+        // A body line is expanded on its own and looked at again only when it
+        // could be a call or a definition; a body with no such line is
+        // appended in one pass.
+        private void expandMacro(MacroTemplate template, String call, int space, PrintStream out) {
+            if (!push(template, call, space)) return;
+            long lines = 0;
+            MacroTemplate tooDeep = null;
+            while (top >= 0) {
+                Frame frame = frames[top];
+                MacroTemplate body = frame.template;
+                if (frame.line == 0 && defDepth == 0 && isFlat(body)) {
+                    lines += body.lines();
+                    if (lines > maxExpansionLines) break;
+                    body.expand(expansion, frame.call, frame.bounds);
+                    top--;
+                } else if (frame.line == body.lines()) {
+                    if (defDepth > 0) endDefinition(); // only an unterminated inner definition gets here
+                    top--;
+                } else {
+                    int l = frame.line++;
+                    String head = body.heads[l];
+                    if (defDepth == 0 && head != null && !head.equalsIgnoreCase("MACRO")
+                            && !templates.containsKey(head)) {
+                        if (++lines > maxExpansionLines) break;
+                        body.expandLine(expansion, l, true, frame.call, frame.bounds);
+                    } else {
+                        bodyLine.setLength(0);
+                        body.expandLine(bodyLine, l, false, frame.call, frame.bounds);
+                        String line = bodyLine.toString(), statement = line.trim();
+                        if (define(statement)) continue;
+                        int at = statement.indexOf(' ');
+                        MacroTemplate callee = templates.get((at < 0) ? statement : statement.substring(0, at));
+                        if (callee != null) {
+                            // Past the depth limit the body is recursing; siblings would only recurse again
+                            if (top + 2 > maxDepth) {
+                                tooDeep = callee;
+                                break;
+                            }
+                            int mark = expansion.length();
+                            if (!push(callee, statement, at) && ++lines > maxExpansionLines) {
+                                expansion.setLength(mark); // the error line push wrote is over the limit
+                                break;
+                            }
+                            continue;
+                        }
+                        if (++lines > maxExpansionLines) break;
+                        expansion.append(line).append(MacroTemplate.NEWLINE);
+                    }
+                }
+                if (expansion.length() >= 1 << 16) drain(out);
             }
+            if (tooDeep != null) {
+                expansion.append("// Error: Macro ").append(tooDeep.name).append(" nested more than ")
+                        .append(maxDepth).append(" levels deep; expansion of ").append(template.name)
+                        .append(" stopped").append(MacroTemplate.NEWLINE);
+            } else if (top >= 0) {
+                expansion.append("// Error: Expansion of ").append(template.name).append(" exceeds ")
+                        .append(maxExpansionLines).append(" lines").append(MacroTemplate.NEWLINE);
+            }
+            if (top >= 0) {
+                if (defDepth > 0) endDefinition();
+                top = -1;
+            }
+        }
 
-            String[] formalParams = defParts[1].split(",");
-            String[] actualArgs = Arrays.copyOfRange(callTokens, 1, callTokens.length);
-
-            Map<String, String> ALA = new HashMap<>();
-            for (int i = 0; i < formalParams.length; i++) {
-                ALA.put(formalParams[i].trim(), actualArgs[i].trim());
+        // Pushes a frame for the call, or appends an error line instead. The
+        // arguments are the space-separated tokens after the name, located in
+        // place rather than split out.
+        private boolean push(MacroTemplate template, String call, int space) {
+            if (template.arity < 0) {
+                expansion.append("// Error: No parameters found for macro ").append(template.name)
+                        .append(MacroTemplate.NEWLINE);
+                return false;
+            }
+            if (top + 2 > maxDepth) {
+                expansion.append("// Error: Macro ").append(template.name).append(" nested more than ")
+                        .append(maxDepth).append(" levels deep").append(MacroTemplate.NEWLINE);
+                return false;
             }
+            if (top + 1 == frames.length) frames = Arrays.copyOf(frames, 2 * frames.length);
+            Frame frame = frames[top + 1];
+            if (frame == null) frame = frames[top + 1] = new Frame();
 
-            // Expand lines from MDT
-            for (int i = mdtIndex + 1; i < MDT.size(); i++) {
-                String macroLine = MDT.get(i);
-                if (macroLine.equalsIgnoreCase("MEND")) break;
+            int args = 0;
+            for (int start = space + 1; space >= 0; start = space + 1) {
+                space = call.indexOf(' ', start);
+                int end = (space < 0) ? call.length() : space;
+                while (start < end && call.charAt(start) <= ' ') start++;
+                while (end > start && call.charAt(end - 1) <= ' ') end--;
+                if (2 * args + 2 > frame.bounds.length) frame.bounds = Arrays.copyOf(frame.bounds, 2 * frame.bounds.length);
+                frame.bounds[2 * args] = start;
+                frame.bounds[2 * args + 1] = end;
+                args++;
+            }
+            if (args < template.arity) {
+                expansion.append("// Error: Macro ").append(template.name).append(" expects ")
+                        .append(template.arity).append(" arguments, got ").append(args)
+                        .append(MacroTemplate.NEWLINE);
+                return false;
+            }
+            frame.template = template;
+            frame.call = call;
+            frame.line = 0;
+            top++;
+            return true;
+        }
 
-                for (String param : ALA.keySet()) {
-                    macroLine = macroLine.replace(param, ALA.get(param));
+        // True if no line of the body can be a call or a definition with the
+        // macros defined now; cached until the next definition
+        private boolean isFlat(MacroTemplate template) {
+            if (template.flatAsOf != definitions) {
+                boolean flat = true;
+                for (String head : template.heads) {
+                    if (head == null || head.equalsIgnoreCase("MACRO") || templates.containsKey(head)) {
+                        flat = false;
+                        break;
+                    }
                 }
-                System.out.println(macroLine);
+                template.flat = flat;
+                template.flatAsOf = definitions;
             }
+            return template.flat;
         }
 
         // Display tables
@@ -104,6 +257,132 @@ public class TwoPassMacroProcessor {
         }
     }
 
+    // A macro body compiled once, at definition time: the body lines joined
+    // into one string with the formal parameters cut out, and for each cut
+    // the position of the argument that goes there. Expanding a call is then
+    // one pass of appends. Formals are matched longest first, so &ARG can no
+    // longer eat the front of &ARG1 the way successive String.replace calls did,
+    // and an argument's text is never rescanned for parameter names.
+    static final class MacroTemplate {
+        static final String NEWLINE = System.lineSeparator();
+
+        final String name;
+        final int arity;          // formals on the prototype line; -1 if it has none
+        final String text;
+        final int[] cuts;         // offsets into text, ascending
+        final int[] slots;        // the argument position for each cut
+        final int[] lineStarts;   // per body line, and text.length() at the end
+        final int[] lineCuts;     // index of each line's first cut, and cuts.length at the end
+        final String[] heads;     // each line's first token, or null if an argument is part of it
+
+        // Set by MacroProcessor.isFlat
+        boolean flat;
+        int flatAsOf = -1;
+
+        private MacroTemplate(String name, int arity, String text, int[] cuts, int[] slots,
+                              int[] lineStarts, int[] lineCuts, String[] heads) {
+            this.name = name;
+            this.arity = arity;
+            this.text = text;
+            this.cuts = cuts;
+            this.slots = slots;
+            this.lineStarts = lineStarts;
+            this.lineCuts = lineCuts;
+            this.heads = heads;
+        }
+
+        // The definition at mdtIndex: its prototype line, then the body up
+        // to the matching MEND (or the end of the MDT). Inner definitions are
+        // part of the body, so the outer formals are substituted in them too.
+        static MacroTemplate compile(List<String> MDT, int mdtIndex) {
+            String[] defParts = MDT.get(mdtIndex).split(" ");
+            String name = defParts[0];
+            if (defParts.length < 2) {
+                return new MacroTemplate(name, -1, "", new int[0], new int[0], new int[1], new int[1], new String[0]);
+            }
+
+            // A formal named twice binds to its last position, as the ALA did
+            String[] formalParams = defParts[1].split(",");
+            Map<String, Integer> position = new HashMap<>();
+            for (int i = 0; i < formalParams.length; i++) {
+                String formal = formalParams[i].trim();
+                if (!formal.isEmpty()) position.put(formal, i);
+            }
+            String[] formals = position.keySet().toArray(new String[0]);
+            Arrays.sort(formals, Comparator.comparingInt(String::length).reversed());
+
+            StringBuilder text = new StringBuilder();
+            List<Integer> cuts = new ArrayList<>(), slots = new ArrayList<>();
+            List<Integer> lineStarts = new ArrayList<>(), lineCuts = new ArrayList<>();
+            List<String> heads = new ArrayList<>();
+            int depth = 0;
+            for (int i = mdtIndex + 1; i < MDT.size(); i++) {
+                String line = MDT.get(i);
+                if (line.equalsIgnoreCase("MACRO")) depth++;
+                if (line.equalsIgnoreCase("MEND") && depth-- == 0) break;
+
+                int start = text.length(), firstCut = cuts.size();
+                for (int at = 0; at < line.length(); ) {
+                    String match = null;
+                    for (String formal : formals) {
+                        if (line.startsWith(formal, at)) {
+                            match = formal;
+                            break;
+                        }
+                    }
+                    if (match == null) {
+                        text.append(line.charAt(at++));
+                    } else {
+                        cuts.add(text.length());
+                        slots.add(position.get(match));
+                        at += match.length();
+                    }
+                }
+                int space = text.indexOf(" ", start);
+                int headEnd = (space < 0) ? text.length() : space;
+                boolean literal = cuts.size() == firstCut || cuts.get(firstCut) > headEnd;
+                heads.add(literal ? text.substring(start, headEnd) : null);
+                lineStarts.add(start);
+                lineCuts.add(firstCut);
+                text.append(NEWLINE);
+            }
+            lineStarts.add(text.length());
+            lineCuts.add(cuts.size());
+            return new MacroTemplate(name, formalParams.length, text.toString(),
+                    cuts.stream().mapToInt(Integer::intValue).toArray(),
+                    slots.stream().mapToInt(Integer::intValue).toArray(),
+                    lineStarts.stream().mapToInt(Integer::intValue).toArray(),
+                    lineCuts.stream().mapToInt(Integer::intValue).toArray(),
+                    heads.toArray(new String[0]));
+        }
+
+        int lines() {
+            return heads.length;
+        }
+
+        // Appends the expansion; argument k is call[bounds[2k], bounds[2k+1])
+        void expand(StringBuilder out, String call, int[] bounds) {
+            int at = 0;
+            for (int k = 0; k < cuts.length; k++) {
+                int slot = slots[k];
+                out.append(text, at, cuts[k]).append(call, bounds[2 * slot], bounds[2 * slot + 1]);
+                at = cuts[k];
+            }
+            out.append(text, at, text.length());
+        }
+
+        // Appends one line of the expansion, with or without its line separator
+        void expandLine(StringBuilder out, int line, boolean newline, String call, int[] bounds) {
+            int at = lineStarts[line];
+            for (int k = lineCuts[line]; k < lineCuts[line + 1]; k++) {
+                int slot = slots[k];
+                out.append(text, at, cuts[k]).append(call, bounds[2 * slot], bounds[2 * slot + 1]);
+                at = cuts[k];
+            }
+            out.append(text, at, lineStarts[line + 1] - (newline ? 0 : NEWLINE.length()));
+        }
+    }
+
     // Main driver function
     public static void main(String[] args) {
         Scanner sc = new Scanner(System.in);
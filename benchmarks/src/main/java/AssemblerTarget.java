@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import spos.bench.Target;
+
+// Benchmark adapter for TwoPassAssembler.java (see spos.bench.Target)
+public class AssemblerTarget implements Target {
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+    private static final String[] MNEMONICS = {"MOV", "ADD", "SUB", "MUL", "JMP"};
+
+    private String mode;
+    private List<String> source;
+    private Path objectFile;
+
+    @Override
+    public void setup(String variant, int size, int knob) {
+        mode = variant;
+        source = generate(size, knob);
+        if (mode.equals("typedObject")) {
+            try {
+                objectFile = Files.createTempFile("assembler", ".obj");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            objectFile.toFile().deleteOnExit();
+        }
+    }
+
+    // START, instructions with a label every eighth line, knob data words, END
+    static List<String> generate(int lines, int symbols) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<String> source = new ArrayList<>(lines + symbols + 2);
+        source.add("START 100");
+        int labels = (lines + 7) / 8;
+        for (int i = 0; i < lines; i++) {
+            String mnemonic = MNEMONICS[random.nextInt(MNEMONICS.length)];
+            String operand = mnemonic.equals("JMP") ? "L" + random.nextInt(labels) : "D" + random.nextInt(symbols);
+            source.add((i % 8 == 0) ? "L" + (i / 8) + " " + mnemonic + " " + operand : mnemonic + " " + operand);
+        }
+        for (int i = 0; i < symbols; i++) source.add("D" + i + " DC 1");
+        source.add("END");
+        return source;
+    }
+
+    @Override
+    public Object run() {
+        if (mode.equals("onePass")) {
+            try {
+                TwoPassAssembler.assembleOnePass(source, DISCARD);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return source;
+        }
+        if (mode.startsWith("typed")) {
+            IntermediateCode ic = TwoPassAssembler.passOneTyped(source);
+            try {
+                if (mode.equals("typedTwoPass")) TwoPassAssembler.passTwo(ic, DISCARD);
+                else if (mode.equals("typedObject")) TwoPassAssembler.passTwo(ic, objectFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return ic.locationCounter;
+        }
+
+        TwoPassAssembler assembler = new TwoPassAssembler();
+        assembler.passOne(source);
+        if (mode.equals("twoPass")) {
+            PrintStream out = System.out;
+            System.setOut(DISCARD);
+            try {
+                assembler.passTwo(assembler.intermediateCode, assembler.symbolTable);
+            } finally {
+                System.setOut(out);
+            }
+        }
+        return assembler.locationCounter;
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import spos.bench.Target;
+
+// Benchmark adapter for TwoPassMacroProcessor.java (see spos.bench.Target)
+public class MacroProcessorTarget implements Target {
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+    private static final int MACROS = 8;
+    private static final int BODY_LINES = 4;
+
+    private List<String> source;
+
+    // variant is "expand", or "nested" followed by the chain depth ("nested8")
+    @Override
+    public void setup(String variant, int size, int knob) {
+        if (variant.equals("expand")) {
+            source = generate(size, knob, false, MACROS);
+        } else if (variant.startsWith("nested")) {
+            source = generate(size, knob, true, Integer.parseInt(variant.substring("nested".length())));
+        } else {
+            throw new IllegalArgumentException("Unknown macro variant: " + variant);
+        }
+    }
+
+    // Macro definitions taking params parameters each, then calls interleaved
+    // with plain instructions. Without nested there are MACROS independent
+    // macros. With nested there are depth macros and the last line of each
+    // body calls the previous one, so a call expands up to depth levels deep.
+    static List<String> generate(int calls, int params, boolean nested, int depth) {
+        if (nested && depth < 1) throw new IllegalArgumentException("Nesting depth must be positive: " + depth);
+        int macros = nested ? depth : MACROS;
+        SplittableRandom random = new SplittableRandom(42);
+        List<String> source = new ArrayList<>();
+        for (int m = 0; m < macros; m++) {
+            StringBuilder formals = new StringBuilder();
+            for (int p = 0; p < params; p++) formals.append(p == 0 ? "" : ",").append("&P").append(p);
+            source.add("MACRO");
+            source.add("M" + m + " " + formals);
+            for (int l = 0; l < BODY_LINES; l++) {
+                if (nested && m > 0 && l == BODY_LINES - 1) {
+                    source.add("M" + (m - 1) + " " + formals.toString().replace(',', ' '));
+                } else {
+                    source.add("MOVER AREG, &P" + (l % params));
+                }
+            }
+            source.add("MEND");
+        }
+        for (int c = 0; c < calls; c++) {
+            StringBuilder call = new StringBuilder("M").append(random.nextInt(macros));
+            for (int p = 0; p < params; p++) call.append(' ').append("X").append(random.nextInt(100));
+            source.add(call.toString());
+            source.add("ADD BREG, Y");
+        }
+        return source;
+    }
+
+    @Override
+    public Object run() {
+        TwoPassMacroProcessor.MacroProcessor processor = new TwoPassMacroProcessor.MacroProcessor();
+        processor.pass1(source);
+        processor.pass2(DISCARD);
+        return processor;
+    }
+}
@@ -0,0 +1,60 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+
+import spos.bench.Target;
+
+// Benchmark adapter for PageReplacement.java (see spos.bench.Target)
+public class PageReplacementTarget implements Target {
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    private String policy;
+    private int frames;
+    private int[] pages;
+    private PageTrace trace;
+    private int[] nextUse;
+
+    @Override
+    public void setup(String variant, int size, int knob) {
+        policy = variant;
+        frames = knob;
+        pages = new int[size];
+
+        // Mostly references to a small working set that drifts over time,
+        // with occasional jumps anywhere in a larger address space
+        SplittableRandom random = new SplittableRandom(42);
+        int base = 0;
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(100) == 0) base = random.nextInt(4096);
+            pages[i] = (random.nextInt(10) < 8) ? base + random.nextInt(2 * frames) : random.nextInt(4096);
+        }
+        trace = PageTrace.of(pages);
+        nextUse = FastOptimal.buildNextUse(trace);
+    }
+
+    @Override
+    public Object run() {
+        switch (policy) {
+            case "LRU": return frameTable(new LRU(frames, pages));
+            case "Optimal": return frameTable(new Optimal(frames, pages));
+            case "FastLRU": return stream(new FastLRU(frames));
+            case "FastOptimal": return stream(new FastOptimal(frames, trace, nextUse));
+            default: return stream(SimulationRunner.newPolicy(policy, frames, trace, nextUse));
+        }
+    }
+
+    private long frameTable(PageReplacementAlgorithm algorithm) {
+        PrintStream out = System.out;
+        System.setOut(DISCARD);
+        try {
+            algorithm.replacePage();
+        } finally {
+            System.setOut(out);
+        }
+        return algorithm.pageFault;
+    }
+
+    private long stream(StreamingPolicy policy) {
+        return new StreamingRun(policy).run(trace.iterator()).faults;
+    }
+}
@@ -0,0 +1,41 @@
+import org.openjdk.jmh.infra.Blackhole;
+
+import spos.bench.SharedTarget;
+
+// Benchmark adapter for the RwLock variants in Spos3.java. The shared
+// resource is a pair of fields that writers keep summing to zero, so a read
+// that observes a torn update is detected.
+public class RwLockTarget implements SharedTarget {
+    private RwLock lock;
+    private long work;
+    private long a, b;
+
+    @Override
+    public void setup(String variant, int size, int knob) {
+        lock = ReaderWriter.newLock(variant);
+        work = knob;
+    }
+
+    @Override
+    public long read() throws InterruptedException {
+        long sum = lock.read(() -> {
+            long x = a;
+            Blackhole.consumeCPU(work);
+            return x + b;
+        });
+        if (sum != 0) throw new IllegalStateException("Torn read: " + sum);
+        return sum;
+    }
+
+    @Override
+    public void write() throws InterruptedException {
+        long stamp = lock.writeLock();
+        try {
+            a++;
+            Blackhole.consumeCPU(work);
+            b = -a;
+        } finally {
+            lock.writeUnlock(stamp);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+
+import spos.bench.Target;
+
+// Benchmark adapter for SPOS_04.java (see spos.bench.Target)
+public class SchedulerTarget implements Target {
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+    private static final GanttSink NO_SINK = (start, end, pid) -> { };
+
+    private String scheduler;
+    private int quantum;
+    private ProcessTable table;
+    private ArrayList<Process> processes;
+
+    @Override
+    public void setup(String variant, int size, int knob) {
+        scheduler = variant;
+        quantum = knob;
+        table = new WorkloadGenerator(42).table(size);
+        processes = table.toProcesses();
+    }
+
+    @Override
+    public Object run() {
+        ScheduleMetrics metrics = new ScheduleMetrics();
+        switch (scheduler) {
+            case "fcfsTable":
+                table.reset();
+                SPOS_04.fcfs(table, NO_SINK, metrics);
+                return metrics;
+            case "roundRobinTable":
+                table.reset();
+                SPOS_04.roundRobin(table, quantum, NO_SINK, metrics);
+                return metrics;
+            case "srtfTable":
+                table.reset();
+                SPOS_04.srtf(table, NO_SINK, metrics);
+                return metrics;
+            case "srtfEvents":
+                SPOS_04.srtfEvents(SPOS_04.cloneList(processes), NO_SINK, metrics);
+                return metrics;
+            case "priorityEvents":
+                SPOS_04.priorityEvents(SPOS_04.cloneList(processes), false, 0, NO_SINK, metrics);
+                return metrics;
+            case "mlfq":
+                SPOS_04.mlfq(SPOS_04.cloneList(processes), new int[] {quantum, 2 * quantum, 4 * quantum},
+                        100 * quantum, NO_SINK, metrics);
+                return metrics;
+            default:
+                return printing(metrics);
+        }
+    }
+
+    // The original schedulers print their Gantt chart and results
+    private ScheduleMetrics printing(ScheduleMetrics metrics) {
+        ArrayList<Process> copy = SPOS_04.cloneList(processes);
+        PrintStream out = System.out;
+        System.setOut(DISCARD);
+        try {
+            switch (scheduler) {
+                case "fcfs": SPOS_04.fcfs(copy, metrics); break;
+                case "sjfPreemptive": SPOS_04.sjfPreemptive(copy, metrics); break;
+                case "priorityNonPreemptive": SPOS_04.priorityNonPreemptive(copy, metrics); break;
+                case "roundRobin": SPOS_04.roundRobin(copy, quantum, metrics); break;
+                default: throw new IllegalArgumentException("Unknown scheduler: " + scheduler);
+            }
+        } finally {
+            System.setOut(out);
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,37 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+import spos.bench.SharedTarget;
+
+// Benchmark adapter for the SharedMap variants in Spos3.java. Reads sum a
+// few random keys from one consistent state; writes update one random key.
+public class SharedMapTarget implements SharedTarget {
+    private static final int KEYS_PER_READ = 4;
+
+    private SharedMap map;
+    private int keys;
+
+    @Override
+    public void setup(String variant, int size, int knob) {
+        map = ReaderWriter.newMap(variant);
+        keys = size;
+        try {
+            for (int k = 0; k < keys; k++) map.put(k, k);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public long read() throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] wanted = new int[KEYS_PER_READ];
+        for (int i = 0; i < wanted.length; i++) wanted[i] = random.nextInt(keys);
+        return map.sum(wanted);
+    }
+
+    @Override
+    public void write() throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        map.put(random.nextInt(keys), random.nextLong(Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,49 @@
+package spos.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Assembles a generated program per operation (labels every few lines,
+// operands referring to a data section at the end). The string-based passes
+// print the machine code to a null stream; the typed and one-pass modes write to it,
+// and typedObject writes a binary object file to a temporary file instead.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AssemblerBenchmark {
+    @Param({"passOne", "twoPass", "typedPassOne", "typedTwoPass", "typedObject", "onePass"})
+    public String mode;
+
+    @Param({"1000", "10000"})
+    public int lines;
+
+    @Param({"64"})
+    public int symbols;
+
+    private Target target;
+
+    @Setup
+    public void setup() {
+        target = Target.create("AssemblerTarget");
+        target.setup(mode, lines, symbols);
+    }
+
+    @Benchmark
+    public Object assemble() {
+        return target.run();
+    }
+}
@@ -0,0 +1,26 @@
+package spos.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Same command line as org.openjdk.jmh.Main, with two different defaults:
+// the GC profiler (allocation rate per op) is on unless other profilers are
+// requested, and iterations are not synchronized (-si false) unless asked.
+// With synchronization, threads keep running until every thread in the
+// group has finished, so readers that starve a writer (RwLockBenchmark with
+// the reader-preference lock) would never let the iteration end.
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (cli.getProfilers().isEmpty()) options.addProfiler(GCProfiler.class);
+        if (!cli.shouldSyncIterations().hasValue()) options.syncIterations(false);
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,49 @@
+package spos.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Runs pass 1 and pass 2 of the macro processor over a generated source with
+// a handful of macro definitions and many calls. Expanded code goes to a
+// null stream. In the nestedN modes each macro body calls the previous macro,
+// in a chain N macros long; 32 is the processor's default depth limit.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MacroProcessorBenchmark {
+    @Param({"expand", "nested2", "nested8", "nested32"})
+    public String mode;
+
+    @Param({"1000", "10000"})
+    public int calls;
+
+    @Param({"1", "8"})
+    public int params;
+
+    private Target target;
+
+    @Setup
+    public void setup() {
+        target = Target.create("MacroProcessorTarget");
+        target.setup(mode, calls, params);
+    }
+
+    @Benchmark
+    public Object expand() {
+        return target.run();
+    }
+}
@@ -0,0 +1,48 @@
+package spos.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Replays one synthetic trace per operation. LRU and Optimal are the
+// frame-table classes (their displayFrames output goes to a null stream and
+// is part of the cost); the others run in streaming mode.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageReplacementBenchmark {
+    @Param({"FIFO", "LRU", "FastLRU", "Optimal", "FastOptimal", "CLOCK", "LFU", "ARC", "2Q"})
+    public String policy;
+
+    @Param({"1000", "10000"})
+    public int length;
+
+    @Param({"4", "64"})
+    public int frames;
+
+    private Target target;
+
+    @Setup
+    public void setup() {
+        target = Target.create("PageReplacementTarget");
+        target.setup(policy, length, frames);
+    }
+
+    @Benchmark
+    public Object replay() {
+        return target.run();
+    }
+}
@@ -0,0 +1,45 @@
+package spos.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Read-only throughput of one shared lock. Run with -t N for N reader
+// threads, or through ReaderScalingMain for the 1..64 sweep.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReaderScalingBenchmark {
+    @Param({"semaphore", "fair", "jdk", "stamped", "striped"})
+    public String lock;
+
+    // Blackhole.consumeCPU tokens spent inside each read
+    @Param({"10"})
+    public int work;
+
+    private SharedTarget target;
+
+    @Setup
+    public void setup() {
+        target = SharedTarget.create("RwLockTarget");
+        target.setup(lock, 0, work);
+    }
+
+    @Benchmark
+    public long read() throws InterruptedException {
+        return target.read();
+    }
+}
@@ -0,0 +1,56 @@
+package spos.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs ReaderScalingBenchmark at 1, 2, 4, ... 64 reader threads and prints
+// one row per lock with read throughput (ops/us) per thread count.
+// Usage: java -cp benchmarks.jar spos.bench.ReaderScalingMain [maxThreads] [JMH options]
+public final class ReaderScalingMain {
+    private ReaderScalingMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = 64;
+        if (args.length > 0 && args[0].matches("\\d+")) {
+            maxThreads = Integer.parseInt(args[0]);
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        CommandLineOptions cli = new CommandLineOptions(args);
+
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int t = 1; t <= maxThreads; t *= 2) threadCounts.add(t);
+
+        Map<String, double[]> scores = new LinkedHashMap<>();
+        for (int i = 0; i < threadCounts.size(); i++) {
+            Collection<RunResult> results = new Runner(new OptionsBuilder().parent(cli)
+                    .include(ReaderScalingBenchmark.class.getName())
+                    .threads(threadCounts.get(i))
+                    .build()).run();
+            for (RunResult result : results) {
+                String lock = result.getParams().getParam("lock");
+                scores.computeIfAbsent(lock, k -> new double[threadCounts.size()])[i] =
+                        result.getPrimaryResult().getScore();
+            }
+        }
+
+        System.out.printf("%n%-10s", "threads");
+        for (int t : threadCounts) System.out.printf("%10d", t);
+        System.out.println();
+        for (Map.Entry<String, double[]> row : scores.entrySet()) {
+            System.out.printf("%-10s", row.getKey());
+            for (double score : row.getValue()) System.out.printf("%10.3f", score);
+            System.out.println();
+        }
+        System.out.println("(read ops/us, " + Runtime.getRuntime().availableProcessors() + " CPUs)");
+    }
+}
@@ -0,0 +1,81 @@
+package spos.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Contention between the reader-writer lock variants in Spos3.java.
+// readOnly: 8 readers; readMostly: 7 readers and 1 writer; mixed: 4 and 4.
+// JMH reports the read and write methods of each group separately, which
+// shows writer starvation under the reader-preference semaphore lock. Use
+// -tg to change the thread split; the numbers only mean something on a
+// machine with at least as many cores as threads.
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RwLockBenchmark {
+    @Param({"semaphore", "fair", "jdk", "stamped"})
+    public String lock;
+
+    // Blackhole.consumeCPU tokens spent inside each critical section
+    @Param({"0", "100"})
+    public int work;
+
+    private SharedTarget target;
+
+    @Setup
+    public void setup() {
+        target = SharedTarget.create("RwLockTarget");
+        target.setup(lock, 0, work);
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(8)
+    public long readOnly() throws InterruptedException {
+        return target.read();
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(7)
+    public long readMostlyRead() throws InterruptedException {
+        return target.read();
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public void readMostlyWrite() throws InterruptedException {
+        target.write();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public long mixedRead() throws InterruptedException {
+        return target.read();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public void mixedWrite() throws InterruptedException {
+        target.write();
+    }
+}
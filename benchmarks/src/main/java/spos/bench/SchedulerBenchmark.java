@@ -0,0 +1,49 @@
+package spos.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Schedules a seeded synthetic workload per operation. The tick-by-tick and
+// object-based methods print their schedule to a null stream; the
+// event-driven and process-table versions get no sink.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulerBenchmark {
+    @Param({"fcfs", "fcfsTable", "sjfPreemptive", "srtfEvents", "srtfTable",
+            "priorityNonPreemptive", "priorityEvents", "roundRobin", "roundRobinTable", "mlfq"})
+    public String scheduler;
+
+    @Param({"1000", "10000"})
+    public int jobs;
+
+    @Param({"2", "8"})
+    public int quantum;
+
+    private Target target;
+
+    @Setup
+    public void setup() {
+        target = Target.create("SchedulerTarget");
+        target.setup(scheduler, jobs, quantum);
+    }
+
+    @Benchmark
+    public Object schedule() {
+        return target.run();
+    }
+}
@@ -0,0 +1,62 @@
+package spos.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Lock-protected HashMap against the copy-on-write and multi-version maps
+// in Spos3.java, with 7 readers and 1 writer, or 8 readers.
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SharedMapBenchmark {
+    @Param({"semaphore", "stamped", "striped", "cow", "mvcc"})
+    public String map;
+
+    @Param({"64", "4096"})
+    public int keys;
+
+    private SharedTarget target;
+
+    @Setup
+    public void setup() {
+        target = SharedTarget.create("SharedMapTarget");
+        target.setup(map, keys, 0);
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(8)
+    public long readOnly() throws InterruptedException {
+        return target.read();
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(7)
+    public long readMostlyRead() throws InterruptedException {
+        return target.read();
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public void readMostlyWrite() throws InterruptedException {
+        target.write();
+    }
+}
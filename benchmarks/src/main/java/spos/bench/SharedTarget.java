@@ -0,0 +1,20 @@
+package spos.bench;
+
+// Like Target, for benchmarks where several threads share one adapter and
+// call read and write concurrently.
+public interface SharedTarget {
+    // Called once per trial with the benchmark's parameters
+    void setup(String variant, int size, int knob);
+
+    long read() throws InterruptedException;
+
+    void write() throws InterruptedException;
+
+    static SharedTarget create(String className) {
+        try {
+            return (SharedTarget) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + className, e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package spos.bench;
+
+// The simulators live in the default package, which named packages cannot
+// import (and JMH will not generate code for). Each benchmark therefore
+// drives them through a public adapter class in the default package.
+public interface Target {
+    // Called once per trial with the benchmark's parameters
+    void setup(String variant, int size, int knob);
+
+    // One complete operation; the result is handed to the Blackhole
+    Object run();
+
+    static Target create(String className) {
+        try {
+            return (Target) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + className, e);
+        }
+    }
+}
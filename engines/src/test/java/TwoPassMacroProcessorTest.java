@@ -0,0 +1,104 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TwoPassMacroProcessorTest {
+
+    private static List<String> expand(TwoPassMacroProcessor.MacroProcessor processor, String... source) {
+        processor.pass1(Arrays.asList(source));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        processor.pass2(new PrintStream(bytes, true));
+        List<String> lines = Arrays.asList(bytes.toString().split("\\R"));
+        return lines.subList(2, lines.size()); // blank line and banner
+    }
+
+    // Each level calls itself twice: before the fix every call past the
+    // depth limit left an uncounted error line and its sibling carried on,
+    // so M x produced 2^32 lines
+    @Test(timeout = 10_000)
+    public void doublyRecursiveMacroStopsAtFirstDepthError() {
+        List<String> out = expand(new TwoPassMacroProcessor.MacroProcessor(32, 1000),
+                "MACRO", "M &A", "M &A", "M &A", "MEND", "M x", "ADD y");
+        assertEquals(Arrays.asList(
+                "// Error: Macro M nested more than 32 levels deep; expansion of M stopped",
+                "ADD y"), out);
+    }
+
+    @Test
+    public void errorLinesCountTowardExpansionLimit() {
+        List<String> out = expand(new TwoPassMacroProcessor.MacroProcessor(32, 3),
+                "MACRO", "N &A", "N", "N", "N", "N", "N", "MEND", "N x");
+        assertEquals(Arrays.asList(
+                "// Error: Macro N expects 1 arguments, got 0",
+                "// Error: Macro N expects 1 arguments, got 0",
+                "// Error: Macro N expects 1 arguments, got 0",
+                "// Error: Expansion of N exceeds 3 lines"), out);
+    }
+
+    @Test
+    public void nestingWithinTheLimitExpandsFully() {
+        List<String> out = expand(new TwoPassMacroProcessor.MacroProcessor(2, 1000),
+                "MACRO", "INNER &A", "ADD &A", "MEND",
+                "MACRO", "OUTER &B", "INNER &B", "INNER &B", "MEND",
+                "OUTER z");
+        assertEquals(Arrays.asList("ADD z", "ADD z"), out);
+    }
+
+    // The inner definition is read when DEFINE expands, so its name and the
+    // outer formal &V inside it are already substituted; &X stays a formal
+    @Test
+    public void definitionInsideBodyIsDefinedOnExpansion() {
+        List<String> out = expand(new TwoPassMacroProcessor.MacroProcessor(),
+                "MACRO", "DEFINE &N,&V", "MACRO", "&N &X", "MOV &V,&X", "MEND", "MEND",
+                "DEFINE LOADA R1",
+                "LOADA 5");
+        assertEquals(Arrays.asList("MOV R1,5"), out);
+    }
+
+    @Test
+    public void callsInsideBodiesExpandSixLevelsDeep() {
+        List<String> out = expand(new TwoPassMacroProcessor.MacroProcessor(6, 1000),
+                "MACRO", "L6 &A", "ADD &A", "MEND",
+                "MACRO", "L5 &A", "L6 &A", "SUB 5", "MEND",
+                "MACRO", "L4 &A", "L5 &A", "SUB 4", "MEND",
+                "MACRO", "L3 &A", "L4 &A", "SUB 3", "MEND",
+                "MACRO", "L2 &A", "L3 &A", "SUB 2", "MEND",
+                "MACRO", "L1 &A", "MOV &A", "L2 &A", "SUB 1", "MEND",
+                "L1 q");
+        assertEquals(Arrays.asList("MOV q", "ADD q", "SUB 5", "SUB 4", "SUB 3", "SUB 2", "SUB 1"), out);
+    }
+
+    // &K only becomes MACRO on expansion, so OPEN's body ends at its own MEND
+    // and the inner definition is still open when the frame runs out
+    @Test
+    public void innerDefinitionWithoutMendEndsWithItsFrame() {
+        List<String> out = expand(new TwoPassMacroProcessor.MacroProcessor(),
+                "MACRO", "OPEN &K,&N", "&K", "&N &X", "ADD &X", "MEND",
+                "OPEN MACRO INNER",
+                "SUB 1",
+                "INNER 7");
+        assertEquals(Arrays.asList("SUB 1", "ADD 7"), out);
+    }
+
+    // With successive String.replace calls &ARG ate the front of &ARG1
+    @Test
+    public void formalThatPrefixesAnotherIsNotMatchedInsideIt() {
+        List<String> out = expand(new TwoPassMacroProcessor.MacroProcessor(),
+                "MACRO", "INCR &ARG,&ARG1", "ADD &ARG,&ARG1", "MOV &ARG1", "MEND",
+                "INCR x y");
+        assertEquals(Arrays.asList("ADD x,y", "MOV y"), out);
+    }
+
+    @Test
+    public void argumentTextIsNotRescannedForFormals() {
+        List<String> out = expand(new TwoPassMacroProcessor.MacroProcessor(),
+                "MACRO", "INCR &ARG,&ARG1", "ADD &ARG,&ARG1", "MEND",
+                "INCR &ARG1 z");
+        assertEquals(Arrays.asList("ADD &ARG1,z"), out);
+    }
+}